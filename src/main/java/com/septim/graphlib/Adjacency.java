@@ -0,0 +1,155 @@
+package com.septim.graphlib;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency lists of a graph in compressed sparse row layout.
+ * <br/>
+ * neighbors of vertex u are targets[offsets[u]] .. targets[offsets[u + 1] - 1], the edge leading to
+ * targets[k] is edge_ids[k]. Neighbors of every vertex are in the order of the edges in {@link Graph#edges}.
+ */
+public class Adjacency implements Neighbors {
+    public final int N; // number of vertices
+    public final int[] offsets; // N + 1 offsets into targets/edge_ids
+    public final int[] targets; // neighbor vertices
+    public final int[] edge_ids; // edge index of every neighbor
+
+    Adjacency(int N, int[] offsets, int[] targets, int[] edge_ids) {
+        this.N = N;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edge_ids = edge_ids;
+    }
+
+    /**
+     * Builds the adjacency where every edge can be used in both directions, as {@link Dijkstra} and {@link Prims} do.
+     * <br/>
+     * self loops are listed only once
+     *
+     * @param graph the graph
+     * @return the adjacency
+     */
+    public static Adjacency of(Graph graph) {
+        return build(graph, false, false);
+    }
+
+    /**
+     * Builds the adjacency where edge {a, b} only leads from a to b.
+     *
+     * @param graph the graph
+     * @return the adjacency
+     */
+    public static Adjacency directed(Graph graph) {
+        return build(graph, true, false);
+    }
+
+    /**
+     * Builds the adjacency where edge {a, b} only leads from b to a, for searches towards a target.
+     *
+     * @param graph the graph
+     * @return the adjacency
+     */
+    public static Adjacency reversed(Graph graph) {
+        return build(graph, true, true);
+    }
+
+    private static Adjacency build(Graph graph, boolean directed, boolean reversed) {
+        int[] from = reversed ? graph.dst : graph.src, to = reversed ? graph.src : graph.dst;
+        int n = graph.N, m = graph.E;
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            offsets[from[i] + 1]++;
+            if (!directed && from[i] != to[i])
+                offsets[to[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++)
+            offsets[i + 1] += offsets[i];
+
+        int[] targets = new int[offsets[n]];
+        int[] edge_ids = new int[offsets[n]];
+        int[] fill = new int[n];
+        System.arraycopy(offsets, 0, fill, 0, n);
+        for (int i = 0; i < m; i++) {
+            int a = from[i], b = to[i];
+            targets[fill[a]] = b;
+            edge_ids[fill[a]++] = i;
+            if (!directed && a != b) {
+                targets[fill[b]] = a;
+                edge_ids[fill[b]++] = i;
+            }
+        }
+        return new Adjacency(n, offsets, targets, edge_ids);
+    }
+
+    /**
+     * Builds the adjacency of the simple graph: neighbors sorted, without duplicates and self loops.
+     * <br/>
+     * of parallel edges the one with the smallest index is kept
+     *
+     * @return the simple adjacency
+     */
+    public Adjacency simple() {
+        int[] new_offsets = new int[N + 1];
+        int[] new_targets = new int[targets.length];
+        int[] new_edge_ids = new int[targets.length];
+        long[] list = new long[16];
+        int size = 0;
+        for (int u = 0; u < N; u++) {
+            int degree = degree(u);
+            if (list.length < degree)
+                list = new long[Integer.highestOneBit(degree) << 1];
+            for (int j = 0, k = offsets[u]; j < degree; j++, k++)
+                list[j] = ((long) targets[k] << 32) | edge_ids[k];
+            Arrays.sort(list, 0, degree);
+            for (int j = 0; j < degree; j++) {
+                int v = (int) (list[j] >>> 32);
+                if (v == u || (j > 0 && (int) (list[j - 1] >>> 32) == v)) continue;
+                new_targets[size] = v;
+                new_edge_ids[size++] = (int) list[j];
+            }
+            new_offsets[u + 1] = size;
+        }
+        return new Adjacency(N, new_offsets, Arrays.copyOf(new_targets, size), Arrays.copyOf(new_edge_ids, size));
+    }
+
+    /**
+     * @param u the vertex
+     * @return number of neighbors of the vertex
+     */
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    @Override
+    public int vertices() {
+        return N;
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new Cursor() {
+            int k, end;
+
+            @Override
+            public void reset(int u) {
+                k = offsets[u] - 1;
+                end = offsets[u + 1];
+            }
+
+            @Override
+            public boolean next() {
+                return ++k < end;
+            }
+
+            @Override
+            public int target() {
+                return targets[k];
+            }
+
+            @Override
+            public int edge() {
+                return edge_ids[k];
+            }
+        };
+    }
+}
@@ -0,0 +1,351 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Shortest distances between all pairs of vertices in a flat N x N matrix, row u holding the distances from u.
+ * <br/>
+ * dense graphs use Floyd-Warshall blocked into TILE x TILE tiles: for every diagonal tile k the tile itself is
+ * closed first, then the other tiles of row and column k, then all remaining tiles, each phase in parallel on a
+ * ForkJoinPool. A tile update reads two tiles and writes one, which all stay in cache. Sparse graphs run
+ * {@link Dijkstra} from every source instead, see {@link #select_method}. Predecessors are optional, the predecessor
+ * of v on the path from u is the vertex before v, Floyd-Warshall finds them from the distances afterwards.
+ * Edges are used in both directions unless directed.
+ */
+public class AllPairs {
+
+    /**
+     * How distances are computed.
+     * <br/>
+     * auto - picked from the density and the weights by {@link #select_method}
+     * <br/>
+     * floyd_warshall - the blocked Floyd-Warshall, works with negative weights without negative cycles
+     * <br/>
+     * dijkstra - Dijkstra from every source, needs non-negative weights
+     */
+    public enum Method {auto, floyd_warshall, dijkstra}
+
+    static final int TILE = 64;
+    static final int INF = Integer.MAX_VALUE / 2; // unreachable while Floyd-Warshall runs, sums of two stay below overflow
+
+    public final int N;
+    public final Method method; // the method used
+    public final int[] distances; // N x N, Integer.MAX_VALUE for unreachable pairs
+    public final int[] predecessors; // N x N, -1 for u itself and unreachable pairs, null if not computed
+
+    private AllPairs(int n, Method method, int[] distances, int[] predecessors) {
+        this.N = n;
+        this.method = method;
+        this.distances = distances;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * Computes the distances between all pairs, without predecessors, on all processors.
+     *
+     * @param graph   the graph
+     * @param weights the edge weights
+     * @return the distances
+     */
+    public static AllPairs compute(Graph graph, int[] weights) {
+        return compute(graph, weights, false, false, Method.auto, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes the distances between all pairs.
+     *
+     * @param graph        the graph
+     * @param weights      the edge weights
+     * @param directed     true if edge {a, b} only leads from a to b
+     * @param predecessors true to compute predecessors for {@link #path}
+     * @param method       how distances are computed
+     * @param threads      number of worker threads
+     * @return the distances
+     */
+    public static AllPairs compute(Graph graph, int[] weights, boolean directed, boolean predecessors, Method method, int threads) {
+        if (weights.length != graph.E) throw new IllegalArgumentException("need a weight for every edge");
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        if ((long) graph.N * graph.N > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException(graph.N + " vertices do not fit an N x N matrix");
+        if (method == Method.auto) method = select_method(graph.N, graph.E, directed, weights);
+        var pool = new ForkJoinPool(threads);
+        try {
+            return switch (method) {
+                case floyd_warshall -> floyd_warshall(graph, weights, directed, predecessors, pool);
+                case dijkstra -> dijkstra(graph, weights, directed, predecessors, pool);
+                default -> throw new IllegalStateException("unexpected method " + method);
+            };
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * The select_method method picks Floyd-Warshall for negative weights and for graphs where Dijkstra from every
+     * source, about N * E * log N steps, would do more work than the N^3 steps of Floyd-Warshall. On random graphs
+     * of 2000 vertices that is from an average degree of about 180, where both take about as long.
+     * Weights too large for the int matrix of Floyd-Warshall go to Dijkstra.
+     */
+    static Method select_method(int n, int m, boolean directed, int[] weights) {
+        long max = 0;
+        boolean negative = false;
+        for (int w : weights) {
+            if (w < 0) negative = true;
+            max = Math.max(max, Math.abs((long) w));
+        }
+        if (negative) return Method.floyd_warshall;
+        if ((n - 1L) * max >= INF / 2) return Method.dijkstra;
+        long arcs = directed ? m : 2L * m;
+        int log = 64 - Long.numberOfLeadingZeros(n);
+        return arcs * log >= (long) n * n ? Method.floyd_warshall : Method.dijkstra;
+    }
+
+    /**
+     * @return the distance from u to v, Integer.MAX_VALUE if v cannot be reached
+     */
+    public int distance(int u, int v) {
+        return distances[u * N + v];
+    }
+
+    /**
+     * @return the vertices of a shortest path from u to v, null if v cannot be reached
+     */
+    public int[] path(int u, int v) {
+        if (predecessors == null) throw new IllegalStateException("computed without predecessors");
+        if (distance(u, v) == Integer.MAX_VALUE) return null;
+        int hops = 0;
+        for (int x = v; x != u; x = predecessors[u * N + x])
+            hops++;
+        int[] path = new int[hops + 1];
+        for (int x = v, i = hops; i >= 0; x = predecessors[u * N + x], i--)
+            path[i] = x;
+        return path;
+    }
+
+    // -------------------------------------------------------------------------------------------------------------
+
+    private static AllPairs floyd_warshall(Graph graph, int[] weights, boolean directed, boolean with_predecessors, ForkJoinPool pool) {
+        int n = graph.N;
+        long max = 0;
+        for (int w : weights)
+            max = Math.max(max, Math.abs((long) w));
+        if ((n - 1L) * max >= INF / 2)
+            throw new IllegalArgumentException("weights too large for Floyd-Warshall, paths may overflow");
+
+        int[] d = new int[n * n];
+        Arrays.fill(d, INF);
+        for (int u = 0; u < n; u++)
+            d[u * n + u] = 0;
+        for (int i = 0; i < graph.E; i++) {
+            int a = graph.src[i], b = graph.dst[i], w = weights[i];
+            if (a == b) {
+                if (w < 0) throw new IllegalArgumentException("negative cycle");
+                continue;
+            }
+            d[a * n + b] = Math.min(d[a * n + b], w);
+            if (!directed)
+                d[b * n + a] = Math.min(d[b * n + a], w);
+        }
+
+        var blocked = new Blocked(n, d);
+        int tiles = (n + TILE - 1) / TILE;
+        for (int k = 0; k < tiles; k++) {
+            int kb = k;
+            blocked.update(k, k, k);
+            List<Callable<Void>> line = new ArrayList<>();
+            for (int t = 0; t < tiles; t++) {
+                if (t == k) continue;
+                int tb = t;
+                line.add(() -> blocked.update(kb, tb, kb));
+                line.add(() -> blocked.update(tb, kb, kb));
+            }
+            run_all(pool, line);
+            List<Callable<Void>> rest = new ArrayList<>();
+            for (int i = 0; i < tiles; i++) {
+                if (i == k) continue;
+                int ib = i;
+                rest.add(() -> {
+                    for (int j = 0; j < tiles; j++)
+                        if (j != kb) blocked.update(ib, j, kb);
+                    return null;
+                });
+            }
+            run_all(pool, rest);
+        }
+
+        // entries still near INF were only lowered by negative weights on the way to an unreachable vertex
+        for (int u = 0; u < n; u++)
+            if (d[u * n + u] < 0) throw new IllegalArgumentException("negative cycle through " + u);
+        for (int i = 0; i < d.length; i++)
+            if (d[i] > INF / 2) d[i] = Integer.MAX_VALUE;
+        int[] p = with_predecessors ? tight_trees(graph, weights, directed, d, pool) : null;
+        return new AllPairs(n, Method.floyd_warshall, d, p);
+    }
+
+    /*
+     * The tight_trees method finds predecessors from the final distances, by a BFS from every source over the edges
+     * (a, b) with d[a] + w = d[b]. Tracking them during the blocked updates would not do: the tiles see distances
+     * in another order than plain Floyd-Warshall, and with zero weight cycles the predecessors could form a cycle.
+     */
+    private static int[] tight_trees(Graph graph, int[] weights, boolean directed, int[] d, ForkJoinPool pool) {
+        int n = graph.N;
+        Adjacency adj = directed ? Adjacency.directed(graph) : Adjacency.of(graph);
+        int[] p = new int[n * n];
+        Arrays.fill(p, -1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = Math.max(1, n / (8 * pool.getParallelism()));
+        for (int begin = 0; begin < n; begin += chunk) {
+            int first = begin, last = Math.min(n, begin + chunk);
+            tasks.add(() -> {
+                int[] queue = new int[n];
+                boolean[] seen = new boolean[n];
+                for (int u = first; u < last; u++) {
+                    int row = u * n, head = 0, tail = 0;
+                    Arrays.fill(seen, false);
+                    seen[u] = true;
+                    queue[tail++] = u;
+                    while (head < tail) {
+                        int a = queue[head++];
+                        for (int k = adj.offsets[a]; k < adj.offsets[a + 1]; k++) {
+                            int b = adj.targets[k];
+                            if (!seen[b] && d[row + a] + weights[adj.edge_ids[k]] == d[row + b]) {
+                                seen[b] = true;
+                                p[row + b] = a;
+                                queue[tail++] = b;
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        run_all(pool, tasks);
+        return p;
+    }
+
+    /**
+     * The matrix of a blocked Floyd-Warshall run.
+     */
+    private record Blocked(int n, int[] d) {
+
+        /*
+         * The update method relaxes tile (ib, jb) through the vertices of tile kb: d[i][j] = min(d[i][j], d[i][k] + d[k][j]).
+         * k is the outer loop, so the tile may be the one of row or column kb itself. The inner loop is a plain
+         * add and min over two rows, which the JIT vectorizes.
+         */
+        Void update(int ib, int jb, int kb) {
+            int i0 = ib * TILE, i1 = Math.min(n, i0 + TILE);
+            int j0 = jb * TILE, j1 = Math.min(n, j0 + TILE);
+            int k0 = kb * TILE, k1 = Math.min(n, k0 + TILE);
+            for (int k = k0; k < k1; k++) {
+                int kn = k * n;
+                for (int i = i0; i < i1; i++) {
+                    int in = i * n, dik = d[in + k];
+                    if (dik >= INF) continue;
+                    for (int j = j0; j < j1; j++)
+                        d[in + j] = Math.min(d[in + j], dik + d[kn + j]);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static AllPairs dijkstra(Graph graph, int[] weights, boolean directed, boolean with_predecessors, ForkJoinPool pool) {
+        for (int w : weights)
+            if (w < 0) throw new IllegalArgumentException("negative weight " + w + ", use Floyd-Warshall");
+        int n = graph.N;
+        Adjacency adj = directed ? Adjacency.directed(graph) : Adjacency.of(graph);
+        Dijkstra.Mode mode = Dijkstra.select_mode(weights);
+        int[] d = new int[n * n];
+        int[] p = with_predecessors ? new int[n * n] : null;
+        if (p != null) Arrays.fill(p, -1);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = Math.max(1, n / (8 * pool.getParallelism()));
+        for (int begin = 0; begin < n; begin += chunk) {
+            int first = begin, last = Math.min(n, begin + chunk);
+            tasks.add(() -> {
+                int[] row = new int[n];
+                for (int u = first; u < last; u++) {
+                    int offset = u * n;
+                    Arrays.fill(row, Integer.MAX_VALUE);
+                    row[u] = 0;
+                    Dijkstra.Callback callback = p == null ? (vertex, edge) -> {}
+                            : (vertex, edge) -> p[offset + vertex] = edge == -1 ? -1 : graph.other(edge, vertex);
+                    switch (mode) {
+                        case bfs -> Dijkstra.run_bfs(adj, u, weights, row, callback, Limit.NONE);
+                        case zero_one_bfs -> Dijkstra.run_zero_one_bfs(adj, u, weights, row, callback, Limit.NONE);
+                        case dial -> Dijkstra.run_dial(adj, u, weights, row, callback, Limit.NONE);
+                        default -> Dijkstra.run_radix(adj, u, weights, row, callback, Limit.NONE);
+                    }
+                    System.arraycopy(row, 0, d, offset, n);
+                }
+                return null;
+            });
+        }
+        run_all(pool, tasks);
+        return new AllPairs(n, Method.dijkstra, d, p);
+    }
+
+    private static void run_all(ForkJoinPool pool, List<Callable<Void>> tasks) {
+        if (tasks.isEmpty()) return;
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw new UncheckedIOException(io);
+            throw new IllegalStateException("all pairs failed", e.getCause());
+        }
+    }
+
+    /*
+     * The main method compares both methods on dense and sparse random graphs and shows which one auto picks.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        for (int degree : new int[]{n / 4, n / 10, 16}) {
+            int m = n * degree / 2;
+            Graph graph = Benchmark.random_graph(n, m, 42);
+            int[] weights = Benchmark.random_weights(m, 1000, 43);
+            AllPairs[] results = new AllPairs[2];
+            double floyd = Benchmark.best_of(1, () -> results[0] = compute(graph, weights, false, false, Method.floyd_warshall, threads));
+            double dijkstra = Benchmark.best_of(1, () -> results[1] = compute(graph, weights, false, false, Method.dijkstra, threads));
+            System.out.printf("%d vertices, average degree %4d: Floyd-Warshall %8.1f ms, Dijkstra %8.1f ms, same: %b, auto picks %s%n",
+                    n, degree, floyd, dijkstra, Arrays.equals(results[0].distances, results[1].distances),
+                    select_method(n, m, false, weights));
+        }
+
+        // negative weights on directed edges, checked against Dijkstra with potentials that make them non-negative
+        Graph graph = Benchmark.random_graph(500, 20_000, 44);
+        int[] weights = Benchmark.random_weights(20_000, 1000, 45);
+        int[] potential = new SplittableRandom(46).ints(500, 0, 500).toArray();
+        int[] shifted = new int[weights.length];
+        for (int i = 0; i < weights.length; i++)
+            shifted[i] = weights[i] + potential[graph.src[i]] - potential[graph.dst[i]];
+        AllPairs negative = compute(graph, shifted, true, true, Method.auto, threads);
+        AllPairs positive = compute(graph, weights, true, false, Method.dijkstra, threads);
+        boolean same = true;
+        for (int u = 0; u < 500; u++) {
+            for (int v = 0; v < 500; v++) {
+                int expected = positive.distance(u, v);
+                if (expected != Integer.MAX_VALUE) expected += potential[u] - potential[v];
+                same &= negative.distance(u, v) == expected;
+            }
+        }
+        System.out.printf("negative weights: %s, same as Dijkstra with potentials: %b, path 0 -> 1: %s%n",
+                negative.method, same, Arrays.toString(negative.path(0, 1)));
+    }
+}
@@ -0,0 +1,173 @@
+package com.septim.graphlib;
+
+import com.diogonunes.jcolor.Attribute;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Attributes of vertices or edges for printing, stored as indices into a palette shared by all tables.
+ * <br/>
+ * every element holds a palette index, 0 for none, so a lookup while printing is an array access and
+ * resetting a table is a fill. Attributes are added to the palette once, by their escape code, since they do not
+ * implement equals. The table grows when an element beyond its size is set, elements beyond it have no attribute.
+ */
+public class AttributeTable {
+    public static final int NONE = 0; // palette index of Attribute.NONE()
+
+    private static final Map<String, Integer> codes = new HashMap<>();
+    private static volatile Attribute[] palette = {Attribute.NONE()};
+
+    private short[] colors;
+
+    /**
+     * Creates an empty table.
+     */
+    public AttributeTable() {
+        this(0);
+    }
+
+    /**
+     * @param size number of elements to reserve
+     */
+    public AttributeTable(int size) {
+        colors = new short[size];
+    }
+
+    /**
+     * Adds an attribute to the shared palette, attributes with the same escape code get the same index.
+     *
+     * @param attribute the attribute
+     * @return its palette index
+     */
+    public static synchronized int color(Attribute attribute) {
+        String code = attribute.toString();
+        if (code.isEmpty()) return NONE;
+        Integer color = codes.get(code);
+        if (color != null) return color;
+        if (palette.length > Short.MAX_VALUE)
+            throw new IllegalStateException("palette is full");
+        Attribute[] grown = Arrays.copyOf(palette, palette.length + 1);
+        grown[palette.length] = attribute;
+        codes.put(code, palette.length);
+        palette = grown;
+        return grown.length - 1;
+    }
+
+    /**
+     * @param color the palette index
+     * @return the attribute of the palette index
+     */
+    public static Attribute attribute(int color) {
+        return palette[color];
+    }
+
+    /**
+     * @param element the vertex or edge
+     * @return its attribute, Attribute.NONE() if it has none
+     */
+    public Attribute get(int element) {
+        return palette[color_of(element)];
+    }
+
+    /**
+     * @param element the vertex or edge
+     * @return its palette index, NONE if it has none
+     */
+    public int color_of(int element) {
+        return element >= 0 && element < colors.length ? colors[element] : NONE;
+    }
+
+    /**
+     * @param element the vertex or edge
+     * @return true if the element has an attribute
+     */
+    public boolean has(int element) {
+        return color_of(element) != NONE;
+    }
+
+    /**
+     * @param element   the vertex or edge
+     * @param attribute its attribute
+     */
+    public void set(int element, Attribute attribute) {
+        set(element, color(attribute));
+    }
+
+    /**
+     * @param element the vertex or edge
+     * @param color   its palette index
+     */
+    public void set(int element, int color) {
+        check(color);
+        if (element < 0) throw new IllegalArgumentException("negative element " + element);
+        if (element >= colors.length) grow(element + 1);
+        colors[element] = (short) color;
+    }
+
+    /**
+     * Sets the same attribute for a set of elements.
+     *
+     * @param elements the vertices or edges
+     * @param color    the palette index, NONE resets them
+     */
+    public void apply(int[] elements, int color) {
+        check(color);
+        int max = -1;
+        for (int element : elements) {
+            if (element < 0) throw new IllegalArgumentException("negative element " + element);
+            max = Math.max(max, element);
+        }
+        if (max >= colors.length) grow(max + 1);
+        for (int element : elements)
+            colors[element] = (short) color;
+    }
+
+    /**
+     * Sets the same attribute for the elements from, ..., to - 1.
+     *
+     * @param from  the first element
+     * @param to    the element after the last one
+     * @param color the palette index, NONE resets them
+     */
+    public void apply(int from, int to, int color) {
+        check(color);
+        if (from < 0 || from > to) throw new IllegalArgumentException("bad range " + from + ".." + to);
+        if (to > colors.length) grow(to);
+        Arrays.fill(colors, from, to, (short) color);
+    }
+
+    /**
+     * Resets a set of elements to no attribute.
+     *
+     * @param elements the vertices or edges
+     */
+    public void reset(int[] elements) {
+        for (int element : elements)
+            if (element >= 0 && element < colors.length) colors[element] = NONE;
+    }
+
+    /**
+     * Resets all elements to no attribute, the table keeps its size.
+     */
+    public void clear() {
+        Arrays.fill(colors, (short) NONE);
+    }
+
+    /**
+     * @return number of elements the table holds
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    private static void check(int color) {
+        if (color < 0 || color >= palette.length)
+            throw new IllegalArgumentException("no palette index " + color);
+    }
+
+    private void grow(int needed) {
+        colors = Arrays.copyOf(colors, Math.max(needed, colors.length + (colors.length >> 1) + 16));
+    }
+}
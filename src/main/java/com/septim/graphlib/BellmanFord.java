@@ -0,0 +1,167 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Single source shortest paths with negative weights.
+ * <br/>
+ * edges are flattened into parallel src/dst/w arrays ordered by source vertex, and every pass relaxes all
+ * of them, in SIMD batches when the jdk.incubator.vector module is available (run java with
+ * {@code --add-modules jdk.incubator.vector}) and with a scalar loop otherwise. Both give the same result.
+ * Candidate distances are clamped to the int range like in {@link Dijkstra}, so a negative cycle drives its
+ * distances down to Integer.MIN_VALUE instead of wrapping around to positive ones.
+ */
+public class BellmanFord {
+
+    /**
+     * Whether the vector module is present, {@link BellmanFordVector} must not be loaded otherwise.
+     */
+    public static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Result of the algorithm.
+     *
+     * @param distances      shortest distances from the start vertex, Integer.MAX_VALUE for unreachable vertices
+     *                       and Integer.MIN_VALUE for vertices reachable from a negative cycle or whose
+     *                       distance is below the int range
+     * @param negative_cycle true if a negative cycle is reachable from the start vertex, or a distance fell below
+     *                       the int range
+     * @param passes         number of relaxation passes that were run
+     */
+    public record Result(int[] distances, boolean negative_cycle, int passes) {}
+
+    public Graph graph;
+    public int start;
+    public int[] weights;
+    public boolean directed = true; // false uses edges in both directions like Dijkstra does, then weights must be non-negative
+    public boolean vectorized = VECTOR_AVAILABLE;
+
+    public BellmanFord(Graph graph, int start, int[] weights) {
+        this.graph = graph;
+        this.start = start;
+        this.weights = weights;
+    }
+
+    /*
+     * The run method relaxes all edges until a pass changes nothing.
+     * If the N-th pass still changes a distance there is a negative cycle.
+     */
+    public Result run() {
+        if (vectorized && !VECTOR_AVAILABLE)
+            throw new IllegalStateException("jdk.incubator.vector module is not available");
+
+        if (!directed)
+            for (int i = 0; i < weights.length; i++)
+                if (weights[i] < 0)
+                    throw new IllegalArgumentException("undirected edge " + i + " has negative weight " + weights[i]
+                            + ", it would form a negative cycle with itself");
+        Adjacency adj = directed ? Adjacency.directed(graph) : Adjacency.of(graph);
+        int m = adj.targets.length;
+        int[] src = new int[m], dst = adj.targets, w = new int[m];
+        for (int u = 0; u < adj.N; u++) {
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                src[k] = u;
+                w[k] = weights[adj.edge_ids[k]];
+            }
+        }
+
+        int[] distances = new int[adj.N];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[start] = 0;
+
+        int passes = 0;
+        boolean changed = true;
+        while (changed && passes < adj.N) {
+            changed = vectorized
+                    ? BellmanFordVector.relax(src, dst, w, distances)
+                    : relax(src, dst, w, distances);
+            passes++;
+        }
+        boolean underflow = false;
+        for (int d : distances)
+            underflow |= d == Integer.MIN_VALUE;
+        if (!changed && !underflow)
+            return new Result(distances, false, passes);
+
+        mark_negative_cycles(adj, src, dst, w, distances);
+        return new Result(distances, true, passes);
+    }
+
+    /*
+     * The relax method is the scalar relaxation pass.
+     */
+    static boolean relax(int[] src, int[] dst, int[] w, int[] distances) {
+        boolean changed = false;
+        for (int i = 0; i < src.length; i++) {
+            int from = distances[src[i]];
+            if (from == Integer.MAX_VALUE) continue;
+            int candidate = Dijkstra.saturated_add(from, w[i]);
+            if (candidate < distances[dst[i]]) {
+                distances[dst[i]] = candidate;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /*
+     * The mark_negative_cycles method sets Integer.MIN_VALUE for every vertex reachable from a negative cycle.
+     * After N passes the targets of still improving edges and the vertices clamped to Integer.MIN_VALUE lie on or behind
+     * such cycles, the marked vertices are them together with everything reachable from them.
+     * This does not depend on the order of relaxations, so scalar and vector runs agree.
+     */
+    private static void mark_negative_cycles(Adjacency adj, int[] src, int[] dst, int[] w, int[] distances) {
+        int[] queue = new int[adj.N];
+        boolean[] marked = new boolean[adj.N];
+        int last = 0;
+        for (int i = 0; i < src.length; i++) {
+            int from = distances[src[i]];
+            boolean improving = from != Integer.MAX_VALUE && Dijkstra.saturated_add(from, w[i]) < distances[dst[i]];
+            if ((improving || distances[dst[i]] == Integer.MIN_VALUE) && !marked[dst[i]]) {
+                marked[dst[i]] = true;
+                queue[last++] = dst[i];
+            }
+        }
+        for (int first = 0; first < last; first++) {
+            int u = queue[first];
+            distances[u] = Integer.MIN_VALUE;
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                if (!marked[adj.targets[k]]) {
+                    marked[adj.targets[k]] = true;
+                    queue[last++] = adj.targets[k];
+                }
+            }
+        }
+    }
+
+    /*
+     * The main method compares the vector and the scalar passes on a random directed graph.
+     * Weights are shifted by random vertex potentials, which makes many of them negative without creating negative cycles.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Graph graph = Benchmark.random_graph(n, m, 42);
+        int[] weights = Benchmark.random_weights(m, 1000, 43);
+        var random = new SplittableRandom(44);
+        int[] potential = random.ints(n, 0, 500).toArray();
+        for (int i = 0; i < m; i++)
+            weights[i] += potential[graph.src[i]] - potential[graph.dst[i]];
+
+        BellmanFord bellmanFord = new BellmanFord(graph, 0, weights);
+        Result[] results = new Result[2];
+        bellmanFord.vectorized = false;
+        double scalar = Benchmark.best_of(10, () -> results[0] = bellmanFord.run());
+        System.out.printf("scalar %8.1f ms, %d passes%n", scalar, results[0].passes());
+        if (!VECTOR_AVAILABLE) {
+            System.out.println("run with --add-modules jdk.incubator.vector to compare the vector version");
+            return;
+        }
+        bellmanFord.vectorized = true;
+        double vector = Benchmark.best_of(10, () -> results[1] = bellmanFord.run());
+        System.out.printf("vector %8.1f ms, %d passes%n", vector, results[1].passes());
+        System.out.println("identical: " + Arrays.equals(results[0].distances(), results[1].distances()));
+    }
+}
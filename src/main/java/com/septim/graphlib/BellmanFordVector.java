@@ -0,0 +1,69 @@
+package com.septim.graphlib;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD relaxation pass of {@link BellmanFord}, only loaded when the jdk.incubator.vector module is present.
+ */
+final class BellmanFordVector {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private BellmanFordVector() {}
+
+    /**
+     * Relaxes all arcs once.
+     * <br/>
+     * distances of the sources and targets of a batch are gathered, candidates are computed, clamped to the int
+     * range like {@link Dijkstra#saturated_add} does and compared in vector registers, and only the improving lanes are written back one by one, because several lanes
+     * may share a target and a scatter would keep an arbitrary one of them.
+     *
+     * @return true if any distance changed
+     */
+    static boolean relax(int[] src, int[] dst, int[] w, int[] distances) {
+        boolean changed = false;
+        int length = SPECIES.length();
+        int[] candidates = new int[length];
+        int bound = SPECIES.loopBound(src.length);
+        int i = 0;
+        for (; i < bound; i += length) {
+            IntVector from = IntVector.fromArray(SPECIES, distances, 0, src, i);
+            VectorMask<Integer> reached = from.compare(VectorOperators.NE, Integer.MAX_VALUE);
+            if (!reached.anyTrue()) continue;
+
+            IntVector weight = IntVector.fromArray(SPECIES, w, i);
+            IntVector sum = from.add(weight);
+            VectorMask<Integer> overflow = from.lanewise(VectorOperators.XOR, sum)
+                    .and(weight.lanewise(VectorOperators.XOR, sum))
+                    .compare(VectorOperators.LT, 0);
+            // MAX_VALUE for positive weights, MIN_VALUE for negative ones
+            IntVector bound_value = weight.lanewise(VectorOperators.ASHR, 31).lanewise(VectorOperators.XOR, Integer.MAX_VALUE);
+            IntVector candidate = sum.blend(bound_value, overflow);
+            IntVector to = IntVector.fromArray(SPECIES, distances, 0, dst, i);
+            VectorMask<Integer> better = candidate.compare(VectorOperators.LT, to).and(reached);
+            if (!better.anyTrue()) continue;
+
+            candidate.intoArray(candidates, 0);
+            for (long lanes = better.toLong(); lanes != 0; lanes &= lanes - 1) {
+                int lane = Long.numberOfTrailingZeros(lanes);
+                int v = dst[i + lane];
+                if (candidates[lane] < distances[v]) {
+                    distances[v] = candidates[lane];
+                    changed = true;
+                }
+            }
+        }
+        for (; i < src.length; i++) {
+            int from = distances[src[i]];
+            if (from == Integer.MAX_VALUE) continue;
+            int candidate = Dijkstra.saturated_add(from, w[i]);
+            if (candidate < distances[dst[i]]) {
+                distances[dst[i]] = candidate;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,121 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Helpers for the benchmarks in the main methods of the algorithm classes.
+ */
+final class Benchmark {
+
+    private Benchmark() {}
+
+    interface Body {
+        void run() throws IOException;
+    }
+
+    /**
+     * Creates a graph with random edges.
+     *
+     * @param n    number of vertices
+     * @param m    number of edges
+     * @param seed the random seed
+     * @return the graph, without permutations for printing
+     */
+    static Graph random_graph(int n, int m, long seed) {
+        var random = new SplittableRandom(seed);
+        int[] vertices = new int[2 * m];
+        for (int i = 0; i < vertices.length; i++)
+            vertices[i] = random.nextInt(n);
+        var graph = new Graph();
+        graph.N = n;
+        graph.edges(vertices);
+        return graph;
+    }
+
+    /**
+     * Creates a graph whose edges lead from a random vertex to one of the following vertices,
+     * like graphs whose vertices are numbered along some locality.
+     *
+     * @param spread the largest difference between the ends of an edge
+     */
+    static Graph local_graph(int n, int m, int spread, long seed) {
+        var random = new SplittableRandom(seed);
+        int[] vertices = new int[2 * m];
+        for (int i = 0; i < vertices.length; i += 2) {
+            vertices[i] = random.nextInt(n);
+            vertices[i + 1] = (vertices[i] + random.nextInt(1, spread + 1)) % n;
+        }
+        var graph = new Graph();
+        graph.N = n;
+        graph.edges(vertices);
+        return graph;
+    }
+
+    /**
+     * Creates a graph with a skewed degree distribution, small vertex ids are picked far more often.
+     */
+    static Graph skewed_graph(int n, int m, long seed) {
+        var random = new SplittableRandom(seed);
+        int[] vertices = new int[2 * m];
+        for (int i = 0; i < vertices.length; i++)
+            vertices[i] = (int) (n * Math.pow(random.nextDouble(), 3));
+        var graph = new Graph();
+        graph.N = n;
+        graph.edges(vertices);
+        return graph;
+    }
+
+    /**
+     * Creates a square grid with horizontal and vertical edges, a stand-in for road networks.
+     *
+     * @param side number of vertices along each side
+     */
+    static Graph grid_graph(int side) {
+        int[] vertices = new int[4 * side * (side - 1)];
+        int i = 0;
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int u = y * side + x;
+                if (x + 1 < side) {
+                    vertices[i++] = u;
+                    vertices[i++] = u + 1;
+                }
+                if (y + 1 < side) {
+                    vertices[i++] = u;
+                    vertices[i++] = u + side;
+                }
+            }
+        }
+        var graph = new Graph();
+        graph.N = side * side;
+        graph.edges(vertices);
+        return graph;
+    }
+
+    /**
+     * Creates random weights in [1, bound).
+     */
+    static int[] random_weights(int m, int bound, long seed) {
+        var random = new SplittableRandom(seed);
+        int[] weights = new int[m];
+        for (int i = 0; i < m; i++)
+            weights[i] = random.nextInt(1, bound);
+        return weights;
+    }
+
+    /**
+     * Runs the body a number of times.
+     *
+     * @return the fastest run in milliseconds
+     */
+    static double best_of(int runs, Body body) throws IOException {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long begin = System.nanoTime();
+            body.run();
+            best = Math.min(best, (System.nanoTime() - begin) / 1e6);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,244 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Betweenness centrality of vertices and edges with Brandes' algorithm.
+ * <br/>
+ * every source needs one shortest path search and one dependency accumulation. Sources are taken from a shared
+ * counter by worker threads, each with its own search arrays and centrality accumulators, which are summed
+ * at the end. Edges can be used in both directions like in {@link Dijkstra}, weights must be positive, since Brandes'
+ * settle order needs every predecessor of a vertex to be settled before it. Distances beyond the int range count as
+ * unreachable.
+ */
+public class Betweenness {
+
+    /**
+     * Centrality scores.
+     *
+     * @param vertices centrality of every vertex
+     * @param edges    centrality of every edge
+     */
+    public record Result(double[] vertices, double[] edges) {}
+
+    /**
+     * Computes betweenness from all sources.
+     *
+     * @param graph   the graph
+     * @param weights positive edge weights, null for unweighted
+     * @param threads number of worker threads
+     * @return the centrality
+     */
+    public static Result compute(Graph graph, int[] weights, int threads) {
+        return compute(graph, weights, graph.N, 0, threads);
+    }
+
+    /**
+     * Computes betweenness, exact or estimated from random sources.
+     * <br/>
+     * sampled scores are scaled by N / samples, so they estimate the exact scores
+     *
+     * @param graph   the graph
+     * @param weights positive edge weights, null for unweighted
+     * @param samples number of random sources, N or more computes the exact scores
+     * @param seed    the random seed for choosing sources
+     * @param threads number of worker threads
+     * @return the centrality
+     */
+    public static Result compute(Graph graph, int[] weights, int samples, long seed, int threads) {
+        if (weights != null)
+            for (int e = 0; e < graph.E; e++)
+                if (weights[e] <= 0) throw new IllegalArgumentException("non-positive weight " + weights[e] + " of edge " + e);
+        Adjacency adj = Adjacency.of(graph);
+        int n = adj.N, m = graph.E;
+
+        int[] sources;
+        if (samples >= n) {
+            sources = new int[n];
+            for (int i = 0; i < n; i++) sources[i] = i;
+        } else {
+            sources = new SplittableRandom(seed).ints(0, n).distinct().limit(samples).toArray();
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Worker>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                var worker = new Worker(adj, weights, m);
+                for (int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement())
+                    worker.source(sources[i]);
+                return worker;
+            });
+        }
+
+        double[] vertices = new double[n], edges = new double[m];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Worker> future : pool.invokeAll(tasks)) {
+                Worker worker = future.get();
+                for (int v = 0; v < n; v++) vertices[v] += worker.vertices[v];
+                for (int e = 0; e < m; e++) edges[e] += worker.edges[e];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("betweenness failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // every path is found from both of its ends
+        double scale = 0.5 * n / sources.length;
+        for (int v = 0; v < n; v++) vertices[v] *= scale;
+        for (int e = 0; e < m; e++) edges[e] *= scale;
+        return new Result(vertices, edges);
+    }
+
+    /**
+     * Search state and partial centrality of one thread.
+     */
+    private static final class Worker {
+        final Adjacency adj;
+        final int[] weights;
+        final int[] distances, order;
+        final double[] sigma, delta;
+        final double[] vertices, edges;
+        final RadixHeap heap = new RadixHeap();
+
+        Worker(Adjacency adj, int[] weights, int m) {
+            this.adj = adj;
+            this.weights = weights;
+            int n = adj.N;
+            distances = new int[n];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            order = new int[n];
+            sigma = new double[n];
+            delta = new double[n];
+            vertices = new double[n];
+            edges = new double[m];
+        }
+
+        int weight(int k) {
+            return weights == null ? 1 : weights[adj.edge_ids[k]];
+        }
+
+        /*
+         * The source method counts shortest paths from s, then accumulates dependencies in the reverse order
+         * in which vertices were settled. Predecessors are found again among the neighbors instead of being stored.
+         */
+        void source(int s) {
+            int settled = search(s);
+
+            for (int i = settled - 1; i >= 0; i--) {
+                int w = order[i];
+                double coefficient = (1 + delta[w]) / sigma[w];
+                for (int k = adj.offsets[w]; k < adj.offsets[w + 1]; k++) {
+                    int v = adj.targets[k];
+                    if (distances[v] != Integer.MAX_VALUE && Dijkstra.saturated_add(distances[v], weight(k)) == distances[w]) {
+                        double c = sigma[v] * coefficient;
+                        delta[v] += c;
+                        edges[adj.edge_ids[k]] += c;
+                    }
+                }
+                if (w != s) vertices[w] += delta[w];
+            }
+
+            for (int i = 0; i < settled; i++) {
+                int v = order[i];
+                distances[v] = Integer.MAX_VALUE;
+                sigma[v] = 0;
+                delta[v] = 0;
+            }
+        }
+
+        /**
+         * Shortest path search counting the paths, BFS when unweighted.
+         *
+         * @return number of settled vertices, they are in order[0 .. settled - 1]
+         */
+        int search(int s) {
+            int settled = 0;
+            distances[s] = 0;
+            sigma[s] = 1;
+            if (weights == null) {
+                order[settled++] = s;
+                for (int first = 0; first < settled; first++) {
+                    int u = order[first];
+                    for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                        int v = adj.targets[k];
+                        if (distances[v] == Integer.MAX_VALUE) {
+                            distances[v] = distances[u] + 1;
+                            order[settled++] = v;
+                        }
+                        if (distances[v] == distances[u] + 1)
+                            sigma[v] += sigma[u];
+                    }
+                }
+                return settled;
+            }
+
+            heap.clear();
+            heap.push(0, s);
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                int d = heap.key();
+                if (d != distances[u])
+                    continue; // stale entry
+                order[settled++] = u;
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                    int v = adj.targets[k];
+                    int through = Dijkstra.saturated_add(d, weights[adj.edge_ids[k]]);
+                    if (through == Integer.MAX_VALUE)
+                        continue; // beyond the int range, the vertex stays unreached
+                    if (through < distances[v]) {
+                        distances[v] = through;
+                        sigma[v] = sigma[u];
+                        heap.push(through, v);
+                    } else if (through == distances[v]) {
+                        sigma[v] += sigma[u];
+                    }
+                }
+            }
+            return settled;
+        }
+    }
+
+    /*
+     * The main method times exact and sampled betweenness on a random graph
+     * and reports how well the sample finds the top vertices.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 25_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Graph graph = Benchmark.random_graph(n, m, 42);
+        int[] weights = Benchmark.random_weights(m, 100, 43);
+
+        Result[] results = new Result[2];
+        double exact = Benchmark.best_of(1, () -> results[0] = compute(graph, weights, threads));
+        double sampled = Benchmark.best_of(1, () -> results[1] = compute(graph, weights, n / 50, 7, threads));
+        System.out.printf("exact    %8.1f ms (%d threads)%n", exact, threads);
+        System.out.printf("sampled  %8.1f ms, %d sources%n", sampled, n / 50);
+
+        int top = 100;
+        Integer[] by_exact = new Integer[n], by_sample = new Integer[n];
+        for (int i = 0; i < n; i++) by_exact[i] = by_sample[i] = i;
+        Arrays.sort(by_exact, (a, b) -> Double.compare(results[0].vertices()[b], results[0].vertices()[a]));
+        Arrays.sort(by_sample, (a, b) -> Double.compare(results[1].vertices()[b], results[1].vertices()[a]));
+        var exact_top = new HashSet<>(Arrays.asList(by_exact).subList(0, top));
+        long common = Arrays.stream(by_sample, 0, top).filter(exact_top::contains).count();
+        System.out.println("top " + top + " vertices found by sampling: " + common);
+    }
+}
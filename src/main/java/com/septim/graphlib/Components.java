@@ -0,0 +1,262 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Connected components of a graph.
+ * <br/>
+ * {@link Dijkstra} and {@link Prims} only reach the component of the start vertex, these methods tell in advance
+ * which vertices that is. Connected components treat edges as undirected like the algorithms do,
+ * strongly connected components follow edge e from graph.src[e] to graph.dst[e].
+ */
+public class Components {
+
+    /**
+     * Components of a graph.
+     *
+     * @param component component id of every vertex, ids are numbered by the smallest vertex of the component
+     * @param sizes     number of vertices of every component
+     */
+    public record Result(int[] component, int[] sizes) {
+
+        /**
+         * @return number of components
+         */
+        public int count() {
+            return sizes.length;
+        }
+
+        /**
+         * @return true if the vertices are in the same component
+         */
+        public boolean same(int u, int v) {
+            return component[u] == component[v];
+        }
+    }
+
+    /*
+     * Number of neighbors every vertex links in the first phase of union_find.
+     */
+    static final int NEIGHBOR_ROUNDS = 2;
+    /*
+     * Number of vertices sampled to find the largest component.
+     */
+    static final int SAMPLES = 1024;
+
+    /**
+     * Finds connected components with a lock-free concurrent union-find (Afforest).
+     * <br/>
+     * first every vertex links its first neighbors, which already joins most of the largest component.
+     * The largest component is then found by sampling and only vertices outside of it link their remaining
+     * neighbors, so most edges of a graph with a giant component are never touched.
+     *
+     * @param graph the graph
+     * @return the components
+     */
+    public static Result union_find(Graph graph) {
+        Adjacency adj = Adjacency.of(graph);
+        int n = adj.N;
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++)
+            parent.set(i, i);
+
+        for (int r = 0; r < NEIGHBOR_ROUNDS; r++) {
+            int round = r;
+            IntStream.range(0, n).parallel().forEach(u -> {
+                int k = adj.offsets[u] + round;
+                if (k < adj.offsets[u + 1])
+                    link(parent, u, adj.targets[k]);
+            });
+            IntStream.range(0, n).parallel().forEach(u -> compress(parent, u));
+        }
+
+        int largest = sample_largest(parent, n);
+        IntStream.range(0, n).parallel().forEach(u -> {
+            if (find(parent, u) == largest) return;
+            for (int k = adj.offsets[u] + NEIGHBOR_ROUNDS; k < adj.offsets[u + 1]; k++)
+                link(parent, u, adj.targets[k]);
+        });
+        IntStream.range(0, n).parallel().forEach(u -> compress(parent, u));
+
+        int[] roots = new int[n];
+        for (int i = 0; i < n; i++)
+            roots[i] = parent.get(i);
+        return number(roots);
+    }
+
+    /**
+     * Finds connected components by parallel label propagation.
+     * <br/>
+     * every vertex repeatedly takes the smallest label among itself and its neighbors, then labels are
+     * shortcut by pointer jumping. Each vertex is written only by its own task, so no atomics are needed.
+     *
+     * @param graph the graph
+     * @return the components
+     */
+    public static Result label_propagation(Graph graph) {
+        Adjacency adj = Adjacency.of(graph);
+        int n = adj.N;
+        int[] label = new int[n];
+        for (int i = 0; i < n; i++)
+            label[i] = i;
+
+        boolean changed = true;
+        while (changed) {
+            changed = IntStream.range(0, n).parallel().map(u -> {
+                int min = label[u];
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++)
+                    min = Math.min(min, label[adj.targets[k]]);
+                min = Math.min(min, label[min]);
+                if (min < label[u]) {
+                    label[u] = min;
+                    return 1;
+                }
+                return 0;
+            }).sum() > 0;
+        }
+        return number(label);
+    }
+
+    /**
+     * Finds strongly connected components with an iterative Tarjan's algorithm.
+     *
+     * @param graph the graph, edge {a, b} leads from a to b
+     * @return the components
+     */
+    public static Result strongly_connected(Graph graph) {
+        Adjacency adj = Adjacency.directed(graph);
+        int n = adj.N;
+        int[] index = new int[n], low = new int[n], root = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] on_stack = new boolean[n];
+        int[] stack = new int[n], call = new int[n], edge = new int[n];
+        int stack_size = 0, counter = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (index[s] != -1) continue;
+            int depth = 0;
+            call[0] = s;
+            edge[0] = adj.offsets[s];
+            index[s] = low[s] = counter++;
+            stack[stack_size++] = s;
+            on_stack[s] = true;
+
+            while (depth >= 0) {
+                int u = call[depth];
+                if (edge[depth] < adj.offsets[u + 1]) {
+                    int v = adj.targets[edge[depth]++];
+                    if (index[v] == -1) {
+                        index[v] = low[v] = counter++;
+                        stack[stack_size++] = v;
+                        on_stack[v] = true;
+                        call[++depth] = v;
+                        edge[depth] = adj.offsets[v];
+                    } else if (on_stack[v]) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+                if (low[u] == index[u]) {
+                    int v;
+                    do {
+                        v = stack[--stack_size];
+                        on_stack[v] = false;
+                        root[v] = u;
+                    } while (v != u);
+                }
+                if (--depth >= 0)
+                    low[call[depth]] = Math.min(low[call[depth]], low[u]);
+            }
+        }
+        return number(root);
+    }
+
+    /**
+     * Hooks the larger of the two roots under the smaller one, retrying when another thread moved a root first.
+     */
+    private static void link(AtomicIntegerArray parent, int u, int v) {
+        while (true) {
+            int a = find(parent, u), b = find(parent, v);
+            if (a == b) return;
+            int high = Math.max(a, b), low = Math.min(a, b);
+            if (parent.compareAndSet(high, high, low)) return;
+        }
+    }
+
+    /**
+     * Finds the root with path halving, the halving CAS may fail harmlessly.
+     */
+    private static int find(AtomicIntegerArray parent, int u) {
+        int p = parent.get(u);
+        while (p != u) {
+            int gp = parent.get(p);
+            if (gp != p) parent.compareAndSet(u, p, gp);
+            u = p;
+            p = gp;
+        }
+        return u;
+    }
+
+    private static void compress(AtomicIntegerArray parent, int u) {
+        parent.set(u, find(parent, u));
+    }
+
+    private static int sample_largest(AtomicIntegerArray parent, int n) {
+        if (n == 0) return -1;
+        var random = new SplittableRandom(n);
+        int[] samples = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++)
+            samples[i] = find(parent, random.nextInt(n));
+        Arrays.sort(samples);
+        int best = samples[0], best_count = 0;
+        for (int i = 0, j; i < SAMPLES; i = j) {
+            for (j = i; j < SAMPLES && samples[j] == samples[i]; j++) ;
+            if (j - i > best_count) {
+                best_count = j - i;
+                best = samples[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Renumbers representatives to component ids in the order of the smallest vertex of each component.
+     */
+    private static Result number(int[] representative) {
+        int n = representative.length;
+        int[] id = new int[n];
+        Arrays.fill(id, -1);
+        int[] component = new int[n];
+        int count = 0;
+        for (int u = 0; u < n; u++) {
+            int r = representative[u];
+            if (id[r] == -1) id[r] = count++;
+            component[u] = id[r];
+        }
+        int[] sizes = new int[count];
+        for (int c : component)
+            sizes[c]++;
+        return new Result(component, sizes);
+    }
+
+    /*
+     * The main method compares the two parallel implementations on a random graph.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        Graph graph = Benchmark.random_graph(n, m, 42);
+
+        Result[] results = new Result[2];
+        double uf = Benchmark.best_of(5, () -> results[0] = union_find(graph));
+        double lp = Benchmark.best_of(5, () -> results[1] = label_propagation(graph));
+        System.out.println(results[0].count() + " components, largest " + Arrays.stream(results[0].sizes()).max().orElse(0));
+        System.out.printf("union_find        %8.1f ms%n", uf);
+        System.out.printf("label_propagation %8.1f ms%n", lp);
+        System.out.println("identical: " + Arrays.equals(results[0].component(), results[1].component()));
+    }
+}
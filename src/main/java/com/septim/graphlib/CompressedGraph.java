@@ -0,0 +1,412 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Read-only graph with compressed neighbor lists, for graphs too large for the src/dst arrays of a {@link Graph}.
+ * <br/>
+ * neighbors of every vertex are sorted and stored as varints: the byte length of the list, the degree,
+ * then for every neighbor the gap to the previous neighbor (the first one relative to the vertex itself,
+ * zigzag encoded) and the zigzag encoded difference of its edge index to the previous edge index.
+ * Offsets are kept only for every {@code 1 << INDEX_SHIFT}-th vertex, the lists in between are jumped over
+ * by their length when a cursor is positioned. A {@link Builder} encodes the lists of one vertex at a time, so a
+ * graph can be compressed from a stream of its edges without holding it uncompressed.
+ * <br/>
+ * it is a source of {@link Neighbors} only, not a {@link Graph}: {@link Dijkstra#run_search} and {@link Prims#run_tree}
+ * run on it directly and decode the neighbors while they are visited. Since the lists are sorted by neighbor,
+ * ties may be visited in another order than with the original graph.
+ */
+public class CompressedGraph implements Neighbors {
+    static final int INDEX_SHIFT = 4;
+    static final int PAGE_BITS = 30; // pages of 1 GiB, so graphs are not limited by the maximal array size
+
+    private final byte[][] pages;
+    private final long[] index; // position of every (1 << INDEX_SHIFT)-th vertex
+    public final int N; // number of vertices
+    public final long arcs; // number of stored neighbors
+    public final int edge_count; // number of edges of the original graph, the length of the weights
+    public final long bytes; // size of the encoded lists
+
+    private CompressedGraph(int n, byte[][] pages, long[] index, long arcs, int edge_count, long bytes) {
+        this.N = n;
+        this.pages = pages;
+        this.index = index;
+        this.arcs = arcs;
+        this.edge_count = edge_count;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Compresses a graph, every edge can be used in both directions.
+     *
+     * @param graph the graph
+     * @return the compressed graph
+     */
+    public static CompressedGraph of(Graph graph) {
+        return of(Adjacency.of(graph), graph.E);
+    }
+
+    /**
+     * Compresses adjacency lists.
+     *
+     * @param adj        the adjacency lists
+     * @param edge_count number of edges the edge indices refer to
+     * @return the compressed graph
+     */
+    public static CompressedGraph of(Adjacency adj, int edge_count) {
+        var builder = new Builder(adj.N, edge_count);
+        int[] targets = new int[0], edges = new int[0];
+        for (int u = 0; u < adj.N; u++) {
+            int degree = adj.degree(u);
+            if (degree == 0) continue;
+            if (targets.length < degree) {
+                targets = new int[Integer.highestOneBit(degree) << 1];
+                edges = new int[targets.length];
+            }
+            System.arraycopy(adj.targets, adj.offsets[u], targets, 0, degree);
+            System.arraycopy(adj.edge_ids, adj.offsets[u], edges, 0, degree);
+            builder.add(u, targets, edges, degree);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Encodes neighbor lists as they are added, holding only the list of one vertex uncompressed.
+     * <br/>
+     * vertices are added in increasing order, each once with all its neighbors, vertices that are skipped have
+     * no neighbors. The neighbors of a vertex may come in any order, they are sorted before they are encoded.
+     */
+    public static final class Builder {
+        private final int n, edge_count;
+        private final Writer out = new Writer(), body = new Writer();
+        private final long[] index;
+        private long[] list = new long[16];
+        private long arcs;
+        private int next; // the next vertex to encode
+
+        /**
+         * @param n          number of vertices
+         * @param edge_count number of edges the edge indices refer to
+         */
+        public Builder(int n, int edge_count) {
+            if (n < 0 || edge_count < 0) throw new IllegalArgumentException("negative size");
+            this.n = n;
+            this.edge_count = edge_count;
+            this.index = new long[(n >>> INDEX_SHIFT) + 1];
+        }
+
+        /**
+         * Adds the neighbors of a vertex.
+         *
+         * @param u       the vertex, greater than the vertices added before
+         * @param targets the neighbors
+         * @param edges   the edge index of every neighbor
+         * @param degree  number of neighbors, the first entries of both arrays
+         * @return this builder
+         */
+        public Builder add(int u, int[] targets, int[] edges, int degree) {
+            if (u < next || u >= n) throw new IllegalArgumentException("vertex " + u + " outside " + next + ".." + (n - 1));
+            while (next < u)
+                encode(next++, 0);
+            if (list.length < degree)
+                list = new long[Integer.highestOneBit(degree) << 1];
+            for (int j = 0; j < degree; j++) {
+                if (targets[j] < 0 || targets[j] >= n) throw new IllegalArgumentException("neighbor " + targets[j] + " of vertex " + u);
+                if (edges[j] < 0 || edges[j] >= edge_count) throw new IllegalArgumentException("edge " + edges[j] + " of vertex " + u);
+                list[j] = ((long) targets[j] << 32) | edges[j];
+            }
+            encode(next++, degree);
+            return this;
+        }
+
+        /**
+         * @return the compressed graph, vertices not added yet have no neighbors
+         */
+        public CompressedGraph build() {
+            while (next < n)
+                encode(next++, 0);
+            return new CompressedGraph(n, out.pages(), index, arcs, edge_count, out.position);
+        }
+
+        private void encode(int u, int degree) {
+            if ((u & ((1 << INDEX_SHIFT) - 1)) == 0)
+                index[u >>> INDEX_SHIFT] = out.position;
+            Arrays.sort(list, 0, degree);
+
+            body.clear();
+            body.varint(degree);
+            int previous_target = u, previous_edge = 0;
+            for (int j = 0; j < degree; j++) {
+                int target = (int) (list[j] >>> 32), edge = (int) list[j];
+                body.varint(j == 0 ? zigzag(target - previous_target) : target - previous_target);
+                body.varint(zigzag(edge - previous_edge));
+                previous_target = target;
+                previous_edge = edge;
+            }
+            out.varint(body.fill);
+            out.put(body.page, body.fill);
+            arcs += degree;
+        }
+    }
+
+    @Override
+    public int vertices() {
+        return N;
+    }
+
+    /**
+     * @param u the vertex
+     * @return number of neighbors of the vertex
+     */
+    public int degree(int u) {
+        long position = position_of(u);
+        position += varint_size(varint_at(position)); // byte length
+        return varint_at(position);
+    }
+
+    /**
+     * @return bytes per stored neighbor, including the offset index
+     */
+    public double bytes_per_arc() {
+        return (bytes + index.length * 8.0) / Math.max(1, arcs);
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new Reader();
+    }
+
+    /**
+     * Jumps over the lists from the last indexed vertex like a cursor does, without allocating one.
+     * Every page but the last one is full, so a position maps to its page by its upper bits.
+     *
+     * @param u the vertex
+     * @return the position of the list of the vertex
+     */
+    private long position_of(int u) {
+        int block = u >>> INDEX_SHIFT;
+        long position = index[block];
+        for (int w = block << INDEX_SHIFT; w < u; w++) {
+            int length = varint_at(position);
+            position += varint_size(length) + length;
+        }
+        return position;
+    }
+
+    private int varint_at(long position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7, position++) {
+            byte b = pages[(int) (position >>> PAGE_BITS)][(int) (position & ((1L << PAGE_BITS) - 1))];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static int varint_size(int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+
+    private static int zigzag(int x) {
+        return (x << 1) ^ (x >> 31);
+    }
+
+    private static int unzigzag(int x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+
+    /**
+     * Decodes the neighbors of one vertex at a time.
+     */
+    private final class Reader implements Cursor {
+        byte[] page;
+        int page_index, position, remaining, target, edge;
+        boolean first;
+
+        @Override
+        public void reset(int u) {
+            int block = u >>> INDEX_SHIFT;
+            long start = index[block];
+            page_index = (int) (start >>> PAGE_BITS);
+            page = pages[page_index];
+            position = (int) (start & ((1L << PAGE_BITS) - 1));
+            for (int w = block << INDEX_SHIFT; w < u; w++) {
+                int length = read_varint();
+                position += length;
+                while (position > page.length) {
+                    position -= page.length;
+                    page = pages[++page_index];
+                }
+            }
+            read_varint(); // byte length
+            remaining = read_varint();
+            target = u;
+            edge = 0;
+            first = true;
+        }
+
+        @Override
+        public boolean next() {
+            if (remaining == 0) return false;
+            remaining--;
+            int gap = read_varint();
+            target += first ? unzigzag(gap) : gap;
+            first = false;
+            edge += unzigzag(read_varint());
+            return true;
+        }
+
+        @Override
+        public int target() {
+            return target;
+        }
+
+        @Override
+        public int edge() {
+            return edge;
+        }
+
+        private byte read_byte() {
+            if (position == page.length) {
+                page = pages[++page_index];
+                position = 0;
+            }
+            return page[position++];
+        }
+
+        private int read_varint() {
+            int b = read_byte();
+            if (b >= 0) return b;
+            int value = b & 0x7f;
+            for (int shift = 7; ; shift += 7) {
+                b = read_byte();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+
+    /**
+     * Growable paged byte buffer.
+     */
+    private static final class Writer {
+        byte[][] pages = new byte[1][1024];
+        byte[] page = pages[0];
+        int fill = 0;
+        long position = 0;
+
+        void varint(int value) {
+            while ((value & ~0x7f) != 0) {
+                put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        void put(byte b) {
+            if (fill == page.length) {
+                if (page.length < (1 << PAGE_BITS)) {
+                    page = Arrays.copyOf(page, Math.min(page.length * 2, 1 << PAGE_BITS));
+                    pages[pages.length - 1] = page;
+                } else {
+                    pages = Arrays.copyOf(pages, pages.length + 1);
+                    page = pages[pages.length - 1] = new byte[1024];
+                    fill = 0;
+                }
+            }
+            page[fill++] = b;
+            position++;
+        }
+
+        void put(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++)
+                put(bytes[i]);
+        }
+
+        /**
+         * Empties a single page buffer.
+         */
+        void clear() {
+            fill = 0;
+            position = 0;
+        }
+
+        byte[][] pages() {
+            pages[pages.length - 1] = Arrays.copyOf(page, fill);
+            return pages;
+        }
+    }
+
+    /*
+     * The main method reports the size of the encoding and the decoding speed compared to Adjacency,
+     * once for a graph with random edges and once for a graph whose edges connect nearby vertices.
+     * Then it streams a ring lattice into a Builder without ever creating a Graph and checks its BFS distances.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 8_000_000;
+        report("random", Benchmark.random_graph(n, m, 42), Benchmark.random_weights(m, 1 << 24, 43));
+        report("local", Benchmark.local_graph(n, m, 64, 42), Benchmark.random_weights(m, 1 << 12, 43));
+        stream(n, Math.max(1, m / n));
+    }
+
+    private static void stream(int n, int k) throws IOException {
+        // vertex u is joined to u + 1, ..., u + k (mod n) by the edges u * k, ..., u * k + k - 1
+        CompressedGraph[] ring = new CompressedGraph[1];
+        double time = Benchmark.best_of(1, () -> {
+            var builder = new Builder(n, n * k);
+            int[] targets = new int[2 * k], edges = new int[2 * k];
+            for (int u = 0; u < n; u++) {
+                for (int j = 1; j <= k; j++) {
+                    targets[2 * j - 2] = (u + j) % n;
+                    edges[2 * j - 2] = u * k + j - 1;
+                    targets[2 * j - 1] = (u - j + n) % n;
+                    edges[2 * j - 1] = (u - j + n) % n * k + j - 1;
+                }
+                builder.add(u, targets, edges, 2 * k);
+            }
+            ring[0] = builder.build();
+        });
+        int[] distances = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[0] = 0;
+        int[] weights = new int[n * k];
+        Arrays.fill(weights, 1);
+        Dijkstra.run_bfs(ring[0], 0, weights, distances, (vertex, edge) -> {}, Limit.NONE);
+        boolean correct = true;
+        for (int v = 0; v < n; v++)
+            correct &= distances[v] == (Math.min(v, n - v) + k - 1) / k;
+        System.out.printf("streamed ring lattice, %d vertices, %d edges: built in %.1f ms, %5.2f bytes/edge, distances correct: %b%n",
+                n, (long) n * k, time, (ring[0].bytes + ring[0].index.length * 8.0) / ((long) n * k), correct);
+    }
+
+    private static void report(String name, Graph graph, int[] weights) throws IOException {
+        int m = graph.E;
+        Adjacency adj = Adjacency.of(graph);
+        CompressedGraph compressed = CompressedGraph.of(adj, m);
+        double csr = 4.0 * (adj.offsets.length + 2L * adj.targets.length) / m;
+        System.out.printf("%s graph, %d vertices, %d edges%n", name, graph.N, m);
+        System.out.printf("  Graph edges     %5.2f bytes/edge (src and dst arrays)%n", 8.0);
+        System.out.printf("  Adjacency       %5.2f bytes/edge%n", csr);
+        System.out.printf("  CompressedGraph %5.2f bytes/edge, %5.2f bytes/neighbor%n",
+                (compressed.bytes + compressed.index.length * 8.0) / m, compressed.bytes_per_arc());
+
+        for (Neighbors neighbors : new Neighbors[]{adj, compressed}) {
+            long[] sum = new long[1];
+            double scan = Benchmark.best_of(5, () -> {
+                var it = neighbors.cursor();
+                for (int u = 0; u < graph.N; u++)
+                    for (it.reset(u); it.next(); )
+                        sum[0] += it.target() + it.edge();
+            });
+            double search = Benchmark.best_of(3, () -> {
+                int[] distances = new int[graph.N];
+                Arrays.fill(distances, Integer.MAX_VALUE);
+                distances[0] = 0;
+                Dijkstra.run_radix(neighbors, 0, weights, distances, (vertex, edge) -> {}, Limit.NONE);
+            });
+            System.out.printf("  %-15s decode %6.1f M neighbors/s, Dijkstra %7.1f ms%n",
+                    neighbors.getClass().getSimpleName(), adj.targets.length / scan / 1e3, search);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.diogonunes.jcolor.Attribute;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.PriorityQueue;
 
 public class Dijkstra {
@@ -20,6 +19,26 @@ public class Dijkstra {
 
     public Callback callback = null;
 
+    /*
+     * Colors of the default callback, added to the palette once.
+     */
+    static final int VISITED_VERTEX = AttributeTable.color(Attribute.TEXT_COLOR(255, 0, 0));
+    static final int VISITED_EDGE = AttributeTable.color(Attribute.TEXT_COLOR(0, 0, 255));
+
+    /*
+     * The Mode enum selects the priority queue used by the algorithm.
+     * auto picks one from the weights, heap works for any weights, radix and dial need non-negative weights
+     * (dial only small ones), zero_one_bfs needs weights 0 and 1 and bfs needs all weights to be equal.
+     */
+    public enum Mode {auto, heap, radix, dial, zero_one_bfs, bfs}
+
+    public Mode mode = Mode.auto;
+
+    /*
+     * Largest weight for which auto mode uses Dial's buckets, there is one bucket per possible weight.
+     */
+    static final int DIAL_MAX_WEIGHT = 1 << 10;
+
     record Node(int id, int distance, int from) implements Comparable<Node> {
 
         /*
@@ -96,14 +115,30 @@ public class Dijkstra {
     }
 
 
+    /*
+     * The Result record is returned by runs with a limit.
+     * distances holds the final distances of the settled vertices and Integer.MAX_VALUE for the others, tree the edge
+     * every settled vertex was reached by and -1 for the start and unsettled vertices. frontier counts the vertices
+     * that were reached but not settled when the run stopped, it is 0 for complete runs.
+     */
+    public record Result(Limit.Status status, int[] distances, int settled, int frontier, int[] tree) {}
+
 /*
     * The run method executes the Dijkstra algorithm on the graph and returns the shortest distances from the start vertex to all other vertices.
  */
     public int[] run() throws IOException {
+        return run(Limit.NONE).distances();
+    }
+
+    /*
+     * The run method with a limit stops once the limit's deadline passes or it is cancelled, checking it every few
+     * settled vertices, and returns what was settled until then.
+     */
+    public Result run(Limit limit) throws IOException {
         if (callback == null) {
             callback = (int now, int prev) -> {
-                graph.vertex_colors.put(now, Attribute.TEXT_COLOR(255, 0, 0));
-                graph.edge_colors.put(prev, Attribute.TEXT_COLOR(0, 0, 255));
+                graph.vertex_colors.set(now, VISITED_VERTEX);
+                if (prev != -1) graph.edge_colors.set(prev, VISITED_EDGE);
                 graph.print_graph();
 
                 System.in.read();
@@ -112,27 +147,108 @@ public class Dijkstra {
 
         }
 
-        return run_impl(graph, start, weights);
+        return run_impl(graph, start, weights, limit);
     }
     /*
         * The run_impl method is the implementation of the Dijkstra algorithm.
+        * It runs the search over the adjacency lists of the graph.
      */
-    private int[] run_impl(Graph graph, int start, int[] weights) throws IOException {
+    private Result run_impl(Graph graph, int start, int[] weights, Limit limit) throws IOException {
+
 
+        graph.vertex_colors.clear();
+        graph.edge_colors.clear();
 
-        int n = graph.N;
+        return run_search(graph.neighbors(), start, weights, mode, callback, limit);
+    }
+
+    /*
+     * The run_search method runs the algorithm on any neighbor lists, also ones without a graph like a CompressedGraph
+     * or a SubgraphView. It selects the priority queue by the mode and records the settled vertices and their tree
+     * edges on the way to the callback, a null callback is not called.
+     */
+    public static Result run_search(Neighbors adj, int start, int[] weights, Mode mode, Callback callback, Limit limit) throws IOException {
+        int n = adj.vertices();
         int[] distances = new int[n];
         Arrays.fill(distances, Integer.MAX_VALUE);
         distances[start] = 0;
 
-        PriorityQueue<Node> pq = new PriorityQueue<>();
-        pq.offer(new Node(start, 0, -1));
+        int[] tree = new int[n];
+        Arrays.fill(tree, -1);
+        boolean[] settled = new boolean[n];
+        Callback recording = (vertex, edge) -> {
+            settled[vertex] = true;
+            tree[vertex] = edge;
+            if (callback != null) callback.call(vertex, edge);
+        };
+
+        boolean finished = switch (mode == Mode.auto ? select_mode(weights) : mode) {
+            case heap -> run_heap(adj, start, weights, distances, recording, limit);
+            case radix -> run_radix(adj, start, weights, distances, recording, limit);
+            case dial -> run_dial(adj, start, weights, distances, recording, limit);
+            case zero_one_bfs -> run_zero_one_bfs(adj, start, weights, distances, recording, limit);
+            case bfs -> run_bfs(adj, start, weights, distances, recording, limit);
+            default -> throw new IllegalStateException("unexpected mode " + mode);
+        };
 
-        graph.vertex_colors = new HashMap<>();
-        graph.edge_colors = new HashMap<>();
+        int count = 0, frontier = 0;
+        for (int v = 0; v < n; v++) {
+            if (settled[v]) {
+                count++;
+            } else if (distances[v] != Integer.MAX_VALUE) {
+                frontier++;
+                distances[v] = Integer.MAX_VALUE; // tentative
+            }
+        }
+        return new Result(limit.status(finished), distances, count, frontier, tree);
+    }
 
+    /*
+     * The select_mode method picks the cheapest priority queue for the weights in a single pass over them.
+     * Equal weights need only a BFS, weights 0 and 1 a deque, small weights Dial's buckets, other non-negative weights
+     * the radix heap and negative weights the binary heap.
+     */
+    static Mode select_mode(int[] weights) {
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int w : weights) {
+            if (w < min) min = w;
+            if (w > max) max = w;
+        }
+        if (weights.length == 0 || (min == max && min >= 0))
+            return Mode.bfs;
+        if (min < 0)
+            return Mode.heap;
+        if (max <= 1)
+            return Mode.zero_one_bfs;
+        if (max <= DIAL_MAX_WEIGHT)
+            return Mode.dial;
+        return Mode.radix;
+    }
+
+    /*
+     * The saturated_add method adds a weight to a distance, clamping sums beyond the int range to Integer.MAX_VALUE
+     * (Integer.MIN_VALUE for negative weights). Every mode relaxes through it, so a vertex whose distance does not fit
+     * in an int stays unreached whichever priority queue is used.
+     */
+    static int saturated_add(int distance, int weight) {
+        int sum = distance + weight;
+        if (((distance ^ sum) & (weight ^ sum)) < 0)
+            return weight < 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        return sum;
+    }
+
+    /*
+     * The run_heap method is the binary heap version of the algorithm, it works with any non-negative weights.
+     * Like the other run methods it returns false when the limit stopped it before the queue ran empty.
+     */
+    static boolean run_heap(Neighbors adj, int start, int[] weights, int[] distances, Callback callback, Limit limit) throws IOException {
+        Neighbors.Cursor it = adj.cursor();
+        int steps = 0;
+        PriorityQueue<Node> pq = new PriorityQueue<>();
+        pq.offer(new Node(start, 0, -1));
 
         while (!pq.isEmpty()) {
+            if (limit.stop(steps++)) return false;
             Node node = pq.poll();
             int u = node.id;
             int distU = node.distance;
@@ -140,28 +256,207 @@ public class Dijkstra {
             if (distances[u] < distU)
                 continue;
 
-            for (int i = 0; i < graph.edges.length; i++) {
-                if (graph.edges[i][0] != u && graph.edges[i][1] != u) continue;
-                int v = -1;
-                if (graph.edges[i][0] == u) {
-                    v = graph.edges[i][1];
+            for (it.reset(u); it.next(); ) {
+                int v = it.target();
+                int weightUV = weights[it.edge()];
+                int distanceThroughU = saturated_add(distU, weightUV);
+
+                if (distanceThroughU < distances[v]) {
+                    distances[v] = distanceThroughU;
+                    pq.offer(new Node(v, distanceThroughU, it.edge()));
                 }
-                if (graph.edges[i][1] == u) {
-                    v = graph.edges[i][0];
+            }
+            callback.call(u, node.from);
+
+        }
+        return true;
+    }
+
+    /*
+     * The run_radix method uses a RadixHeap, extracted distances never decrease so its buckets stay valid.
+     */
+    static boolean run_radix(Neighbors adj, int start, int[] weights, int[] distances, Callback callback, Limit limit) throws IOException {
+        Neighbors.Cursor it = adj.cursor();
+        int steps = 0;
+        int[] via = new int[adj.vertices()];
+        via[start] = -1;
+        RadixHeap heap = new RadixHeap();
+        heap.push(0, start);
+
+        while (!heap.isEmpty()) {
+            if (limit.stop(steps++)) return false;
+            int u = heap.pop();
+            int distU = heap.key();
+            if (distances[u] != distU)
+                continue; // stale entry
+
+            for (it.reset(u); it.next(); ) {
+                int v = it.target();
+                int distanceThroughU = saturated_add(distU, weights[it.edge()]);
+                if (distanceThroughU < distances[v]) {
+                    distances[v] = distanceThroughU;
+                    via[v] = it.edge();
+                    heap.push(distanceThroughU, v);
                 }
-                ;
-                int weightUV = weights[i];
-                int distanceThroughU = distU + weightUV;
+            }
+            callback.call(u, via[u]);
+        }
+        return true;
+    }
+
+    /*
+     * The run_dial method uses Dial's circular bucket queue, one bucket per distance modulo (max weight + 1).
+     * All tentative distances lie within max weight of the current one, so the buckets never mix two distances.
+     * Bucket entries are linked lists in primitive arrays, popped entries are reused through a free list.
+     */
+    static boolean run_dial(Neighbors adj, int start, int[] weights, int[] distances, Callback callback, Limit limit) throws IOException {
+        Neighbors.Cursor it = adj.cursor();
+        int steps = 0;
+        int max = 0;
+        for (int w : weights)
+            max = Math.max(max, w);
+        int buckets = max + 1;
+
+        int[] head = new int[buckets];
+        Arrays.fill(head, -1);
+        int[] vertex = new int[Math.max(16, adj.vertices())];
+        int[] next = new int[vertex.length];
+        vertex[0] = start;
+        next[0] = -1;
+        head[0] = 0;
+        int used = 1, free = -1, pending = 1;
+
+        int[] via = new int[adj.vertices()];
+        via[start] = -1;
+
+        for (int current = 0; pending > 0; current++) {
+            int b = current % buckets;
+            while (head[b] != -1) {
+                if (limit.stop(steps++)) return false;
+                int entry = head[b];
+                head[b] = next[entry];
+                next[entry] = free;
+                free = entry;
+                pending--;
+
+                int u = vertex[entry];
+                if (distances[u] != current)
+                    continue; // stale entry
+
+                for (it.reset(u); it.next(); ) {
+                    int v = it.target();
+                    int distanceThroughU = saturated_add(current, weights[it.edge()]);
+                    if (distanceThroughU < distances[v]) {
+                        distances[v] = distanceThroughU;
+                        via[v] = it.edge();
 
+                        if (free != -1) {
+                            entry = free;
+                            free = next[free];
+                        } else {
+                            if (used == vertex.length) {
+                                vertex = Arrays.copyOf(vertex, used * 2);
+                                next = Arrays.copyOf(next, used * 2);
+                            }
+                            entry = used++;
+                        }
+                        int nb = distanceThroughU % buckets;
+                        vertex[entry] = v;
+                        next[entry] = head[nb];
+                        head[nb] = entry;
+                        pending++;
+                    }
+                }
+                callback.call(u, via[u]);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The run_zero_one_bfs method handles weights 0 and 1 with a deque,
+     * vertices reached by a 0 edge go to the front and vertices reached by a 1 edge to the back.
+     */
+    static boolean run_zero_one_bfs(Neighbors adj, int start, int[] weights, int[] distances, Callback callback, Limit limit) throws IOException {
+        Neighbors.Cursor it = adj.cursor();
+        int steps = 0;
+        boolean[] settled = new boolean[adj.vertices()];
+        int[] via = new int[adj.vertices()];
+        via[start] = -1;
+
+        int[] deque = new int[Integer.highestOneBit(Math.max(16, adj.vertices())) << 1];
+        int mask = deque.length - 1;
+        int first = 0, size = 1;
+        deque[0] = start;
+
+        while (size > 0) {
+            if (limit.stop(steps++)) return false;
+            int u = deque[first];
+            first = (first + 1) & mask;
+            size--;
+
+            if (settled[u])
+                continue;
+            settled[u] = true;
+
+            for (it.reset(u); it.next(); ) {
+                int v = it.target();
+                int w = weights[it.edge()];
+                int distanceThroughU = saturated_add(distances[u], w);
                 if (distanceThroughU < distances[v]) {
                     distances[v] = distanceThroughU;
-                    pq.offer(new Node(v, distanceThroughU, i));
+                    via[v] = it.edge();
+
+                    if (size == deque.length) {
+                        int[] grown = new int[deque.length * 2];
+                        for (int i = 0; i < size; i++)
+                            grown[i] = deque[(first + i) & mask];
+                        deque = grown;
+                        mask = deque.length - 1;
+                        first = 0;
+                    }
+                    if (w == 0) {
+                        first = (first - 1) & mask;
+                        deque[first] = v;
+                    } else {
+                        deque[(first + size) & mask] = v;
+                    }
+                    size++;
                 }
             }
-            callback.call(u, node.from);
+            callback.call(u, via[u]);
+        }
+        return true;
+    }
 
+    /*
+     * The run_bfs method handles graphs where all edges have the same weight,
+     * the distance of a vertex is then its BFS level times that weight.
+     */
+    static boolean run_bfs(Neighbors adj, int start, int[] weights, int[] distances, Callback callback, Limit limit) throws IOException {
+        Neighbors.Cursor it = adj.cursor();
+        int steps = 0;
+        int[] queue = new int[adj.vertices()];
+        int[] via = new int[adj.vertices()];
+        via[start] = -1;
+        int first = 0, last = 0;
+        queue[last++] = start;
+
+        while (first < last) {
+            if (limit.stop(steps++)) return false;
+            int u = queue[first++];
+            for (it.reset(u); it.next(); ) {
+                int v = it.target();
+                int distanceThroughU = saturated_add(distances[u], weights[it.edge()]);
+                if (distances[v] == Integer.MAX_VALUE && distanceThroughU != Integer.MAX_VALUE) {
+                    distances[v] = distanceThroughU;
+                    via[v] = it.edge();
+                    queue[last++] = v;
+                }
+            }
+            callback.call(u, via[u]);
         }
-        return distances;
+        return true;
     }
     /*
         * The main method creates an instance of the Dijkstra class and runs the Dijkstra algorithm on the graph.
@@ -0,0 +1,217 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shortest distances over a partitioned graph, one {@link PartitionWorker} per part.
+ * <br/>
+ * the coordinator only routes the boundary batches between the workers in bulk synchronous supersteps and
+ * stops them once a superstep sends nothing, the graph itself is only read by the workers from their part files.
+ * Workers are separate JVM processes connected over loopback sockets, or threads for testing. The protocol runs
+ * over any {@link Transport}, so other links can replace the sockets.
+ */
+public class DistributedShortestPaths {
+
+    /**
+     * Where workers run.
+     * <br/>
+     * process - a JVM process per worker, started with the class path of this one
+     * <br/>
+     * thread - a thread per worker, still connected over sockets
+     */
+    public enum Launch {process, thread}
+
+    public Duration worker_timeout = Duration.ofMinutes(1); // longest wait for a worker to connect, answer or exit
+    public int supersteps; // supersteps of the last run
+    public long messages; // relaxations routed by the last run
+
+    /**
+     * Writes the parts, starts the workers and computes distances from a start vertex.
+     *
+     * @param graph        the graph
+     * @param weights      non-negative edge weights
+     * @param partitioning the partitioning
+     * @param start        the start vertex
+     * @param launch       where workers run
+     * @return shortest distances, Integer.MAX_VALUE for unreachable vertices, the same as {@link Dijkstra#run()}
+     */
+    public int[] run(Graph graph, int[] weights, Partitioning partitioning, int start, Launch launch) throws IOException {
+        for (int w : weights)
+            if (w < 0) throw new IllegalArgumentException("negative weight " + w);
+        Path directory = Files.createTempDirectory("partitions");
+        List<Process> processes = new ArrayList<>();
+        Transport[] workers = new Transport[partitioning.parts];
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            Path[] files = partitioning.write(graph, weights, directory);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.configureBlocking(false); // poll, so a worker dying before it connects is noticed
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            String host = InetAddress.getLoopbackAddress().getHostAddress();
+            for (Path file : files) {
+                if (launch == Launch.process) {
+                    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            PartitionWorker.class.getName(), host, String.valueOf(port), file.toString())
+                            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                            .redirectError(ProcessBuilder.Redirect.INHERIT)
+                            .start());
+                } else {
+                    var thread = new Thread(() -> {
+                        try {
+                            PartitionWorker.run(SocketTransport.connect(host, port), file);
+                        } catch (IOException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }, "partition-worker");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+            long deadline = System.nanoTime() + worker_timeout.toNanos();
+            for (int i = 0; i < workers.length; i++) {
+                SocketChannel channel;
+                while ((channel = server.accept()) == null) {
+                    if (System.nanoTime() - deadline >= 0)
+                        throw new SocketTimeoutException("workers did not connect within " + worker_timeout.toMillis() + " ms");
+                    if (failure.get() != null)
+                        throw new IOException("worker failed", failure.get());
+                    for (Process process : processes)
+                        if (!process.isAlive())
+                            throw new IOException("worker process exited with " + process.exitValue());
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("interrupted while waiting for workers", e);
+                    }
+                }
+                var transport = new SocketTransport(channel, worker_timeout);
+                int[] hello = transport.receive();
+                if (hello.length != 2 || hello[0] != PartitionWorker.HELLO)
+                    throw new IllegalStateException("unexpected frame from worker");
+                workers[hello[1]] = transport;
+            }
+            return run(workers, partitioning, start);
+        } finally {
+            for (Transport worker : workers)
+                if (worker != null) worker.close();
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(worker_timeout.toMillis(), TimeUnit.MILLISECONDS))
+                        process.destroyForcibly();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    process.destroyForcibly();
+                }
+            }
+            try (var files = Files.list(directory)) { // also the parts written before a failed write
+                for (Path file : (Iterable<Path>) files::iterator)
+                    Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Runs the supersteps over connected workers, each has already sent its HELLO.
+     *
+     * @param workers      the link to the worker of every part
+     * @param partitioning the partitioning the workers were loaded with
+     * @param start        the start vertex
+     * @return shortest distances
+     */
+    public int[] run(Transport[] workers, Partitioning partitioning, int start) throws IOException {
+        int parts = workers.length;
+        supersteps = 0;
+        messages = 0;
+        for (int p = 0; p < parts; p++)
+            workers[p].send(new int[]{partitioning.owner[start] == p ? partitioning.local_index[start] : -1}, 1);
+
+        int[][] batches = new int[parts][];
+        int[] incoming_sizes = new int[parts];
+        while (true) {
+            Arrays.fill(incoming_sizes, 0);
+            long total = 0;
+            for (int p = 0; p < parts; p++) {
+                batches[p] = workers[p].receive();
+                for (int q = 0; q < parts; q++) {
+                    incoming_sizes[q] += batches[p][q];
+                    total += batches[p][q];
+                }
+            }
+            supersteps++;
+            messages += total;
+            if (total == 0) break;
+
+            // route: the pairs for part q are the concatenation of the q-th group of every batch
+            for (int q = 0; q < parts; q++) {
+                int[] frame = new int[1 + 2 * incoming_sizes[q]];
+                frame[0] = PartitionWorker.CONTINUE;
+                int at = 1;
+                for (int p = 0; p < parts; p++) {
+                    int[] batch = batches[p];
+                    int from = parts;
+                    for (int r = 0; r < q; r++)
+                        from += 2 * batch[r];
+                    System.arraycopy(batch, from, frame, at, 2 * batch[q]);
+                    at += 2 * batch[q];
+                }
+                workers[q].send(frame, frame.length);
+            }
+        }
+
+        int[] distances = new int[partitioning.owner.length];
+        for (int p = 0; p < parts; p++)
+            workers[p].send(new int[]{PartitionWorker.DONE}, 1);
+        for (int p = 0; p < parts; p++) {
+            int[] local = workers[p].receive();
+            int[] members = partitioning.members(p);
+            for (int i = 0; i < members.length; i++)
+                distances[members[i]] = local[i];
+        }
+        return distances;
+    }
+
+    /*
+     * The main method runs both partitionings with worker threads and processes on a grid
+     * and checks the distances against Dijkstra.
+     */
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int parts = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Graph graph = Benchmark.grid_graph(side);
+        int[] weights = Benchmark.random_weights(graph.E, 100, 43);
+
+        Dijkstra dijkstra = new Dijkstra(graph, 0, weights);
+        dijkstra.callback = (vertex, edge) -> {};
+        int[][] expected = new int[1][];
+        double single = Benchmark.best_of(1, () -> expected[0] = dijkstra.run());
+        System.out.printf("%-6s %-8s %8.1f ms%n", "single", "", single);
+
+        for (var strategy : Partitioning.Strategy.values()) {
+            Partitioning partitioning = Partitioning.of(graph, parts, strategy, 42);
+            for (var launch : Launch.values()) {
+                var runner = new DistributedShortestPaths();
+                int[][] distances = new int[1][];
+                double time = Benchmark.best_of(1, () -> distances[0] = runner.run(graph, weights, partitioning, 0, launch));
+                System.out.printf("%-6s %-8s %8.1f ms, %d cut edges, %d supersteps, %d messages, same as Dijkstra: %b%n",
+                        strategy, launch, time, partitioning.cut_edges(graph), runner.supersteps, runner.messages,
+                        Arrays.equals(expected[0], distances[0]));
+            }
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.septim.graphlib;
 import com.diogonunes.jcolor.Attribute;
 
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Arrays;
 
 import static com.diogonunes.jcolor.Ansi.colorize;
 
@@ -13,12 +13,17 @@ import static com.diogonunes.jcolor.Ansi.colorize;
 
 public class Graph {
     public int N; // number of vertices
-    public int[][] edges; // edges as pairs of vertices
+    public int E; // number of edges
+    public int[] src, dst; // edge i connects src[i] and dst[i]
 
     public Side[] edgeSides;
 
-    public Map<Integer, Attribute> edge_colors = Map.of(); // colors for edges
-    public Map<Integer, Attribute> vertex_colors = Map.of(); // colors for vertices
+    public AttributeTable edge_colors = new AttributeTable(); // colors for edges
+    public AttributeTable vertex_colors = new AttributeTable(); // colors for vertices
+
+    private record Cached(int n, int e, int[] src, int[] dst, Adjacency adjacency) {}
+
+    private volatile Cached cached; // neighbor lists of the last neighbors() call
 
 
     /**
@@ -28,13 +33,180 @@ public class Graph {
      */
     public void edges(int... vertices) {
         assert vertices.length % 2 == 0 : "number of vertices must be even";
-        edges = new int[vertices.length / 2][2];
+        E = vertices.length / 2;
+        src = new int[E];
+        dst = new int[E];
         for (int i = 0, j = 0; j < vertices.length; i++, j += 2) {
-            edges[i][0] = vertices[j];
-            edges[i][1] = vertices[j + 1];
+            src[i] = vertices[j];
+            dst[i] = vertices[j + 1];
         }
     }
 
+    /**
+     * @param edge   the edge
+     * @param vertex one end of the edge
+     * @return the other end of the edge
+     */
+    public int other(int edge, int vertex) {
+        return src[edge] == vertex ? dst[edge] : src[edge];
+    }
+
+    /**
+     * Collects edges and their weights in growable arrays and builds the graph from them, without an array per edge.
+     * <br/>
+     * the arrays grow by half, {@link #build()} and {@link #weights()} trim them and hand them over, more edges can be
+     * added afterwards without changing graphs that were already built.
+     */
+    public static class Builder {
+        private final int n;
+        private int[] src, dst, weights;
+        private int size;
+
+        /**
+         * @param n number of vertices
+         */
+        public Builder(int n) {
+            this(n, 16);
+        }
+
+        /**
+         * @param n        number of vertices
+         * @param capacity expected number of edges
+         */
+        public Builder(int n, int capacity) {
+            if (n < 0 || capacity < 0) throw new IllegalArgumentException("negative size");
+            this.n = n;
+            src = new int[capacity];
+            dst = new int[capacity];
+            weights = new int[capacity];
+        }
+
+        /**
+         * Adds an edge of weight 1.
+         *
+         * @param a one end
+         * @param b the other end
+         * @return this builder
+         */
+        public Builder addEdge(int a, int b) {
+            return addEdge(a, b, 1);
+        }
+
+        /**
+         * Adds an edge, its index is the number of edges added before.
+         *
+         * @param a      one end
+         * @param b      the other end
+         * @param weight the weight
+         * @return this builder
+         */
+        public Builder addEdge(int a, int b, int weight) {
+            check(a);
+            check(b);
+            if (size == src.length) grow(size + 1);
+            src[size] = a;
+            dst[size] = b;
+            weights[size++] = weight;
+            return this;
+        }
+
+        /**
+         * Adds edges src[i] - dst[i] in bulk.
+         *
+         * @param src     first ends
+         * @param dst     second ends
+         * @param weights the weights, null for weight 1
+         * @return this builder
+         */
+        public Builder addEdges(int[] src, int[] dst, int[] weights) {
+            int m = src.length;
+            if (dst.length != m || (weights != null && weights.length != m))
+                throw new IllegalArgumentException("arrays of different length");
+            for (int i = 0; i < m; i++) {
+                check(src[i]);
+                check(dst[i]);
+            }
+            if (size + m > this.src.length) grow(size + m);
+            System.arraycopy(src, 0, this.src, size, m);
+            System.arraycopy(dst, 0, this.dst, size, m);
+            if (weights != null)
+                System.arraycopy(weights, 0, this.weights, size, m);
+            else
+                Arrays.fill(this.weights, size, size + m, 1);
+            size += m;
+            return this;
+        }
+
+        /**
+         * @return number of edges added so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the weights of the edges added so far, by edge index
+         */
+        public int[] weights() {
+            trim();
+            return weights;
+        }
+
+        /**
+         * @return a graph of the edges added so far
+         */
+        public Graph build() {
+            trim();
+            var graph = new Graph();
+            graph.N = n;
+            graph.E = size;
+            graph.src = src;
+            graph.dst = dst;
+            return graph;
+        }
+
+        private void check(int vertex) {
+            if (vertex < 0 || vertex >= n)
+                throw new IllegalArgumentException("vertex " + vertex + " outside 0.." + (n - 1));
+        }
+
+        private void grow(int needed) {
+            long capacity = Math.max(needed, src.length + (src.length >> 1) + 16L);
+            if (capacity > Integer.MAX_VALUE - 8) capacity = needed;
+            src = Arrays.copyOf(src, (int) capacity);
+            dst = Arrays.copyOf(dst, (int) capacity);
+            weights = Arrays.copyOf(weights, (int) capacity);
+        }
+
+        /*
+         * The trim method shrinks the arrays to the edges, so the next edge added copies them and the arrays
+         * handed out stay unchanged.
+         */
+        private void trim() {
+            if (src.length == size) return;
+            src = Arrays.copyOf(src, size);
+            dst = Arrays.copyOf(dst, size);
+            weights = Arrays.copyOf(weights, size);
+        }
+    }
+
+    /**
+     * Returns the neighbor lists used by the algorithms, every edge can be used in both directions.
+     * <br/>
+     * the lists are built once and kept until N, E, src or dst is replaced, for example by {@link #edges}.
+     * Changing entries of src or dst in place is not noticed, such a graph needs new arrays.
+     *
+     * @return the neighbor lists
+     */
+    public Neighbors neighbors() {
+        Cached last = cached;
+        if (last != null && last.n == N && last.e == E && last.src == src && last.dst == dst)
+            return last.adjacency;
+        Adjacency adjacency = Adjacency.of(this);
+        cached = new Cached(N, E, src, dst, adjacency);
+        return adjacency;
+    }
+
     public void setEdgeSides(Side[] edgeSides) {
         this.edgeSides = edgeSides;
     }
@@ -104,15 +276,14 @@ public class Graph {
      */
     protected int[] calculate_needed_size(Side[] sides) {
         int[][] counts = new int[N][4];
-        for (int i = 0; i < edges.length; i++) {
-            var edge = edges[i];
+        for (int i = 0; i < E; i++) {
             int a, b;
-            if (r_perm_x[edge[0]] < r_perm_x[edge[1]]) {
-                a = edges[i][0];
-                b = edges[i][1];
+            if (r_perm_x[src[i]] < r_perm_x[dst[i]]) {
+                a = src[i];
+                b = dst[i];
             } else {
-                a = edges[i][1];
-                b = edges[i][0];
+                a = dst[i];
+                b = src[i];
             }
             var side = sides[i];
 //			if (side == Side.left) {
@@ -233,15 +404,14 @@ public class Graph {
             ArrayList<Integer>[] r_p_y
     ) {
         int[][] counts = new int[N][4];
-        for (int i = 0; i < edges.length; i++) {
-            var edge = edges[i];
+        for (int i = 0; i < E; i++) {
             int a, b;
-            if (r_perm_x[edge[0]] < r_perm_x[edge[1]]) {
-                a = edges[i][0];
-                b = edges[i][1];
+            if (r_perm_x[src[i]] < r_perm_x[dst[i]]) {
+                a = src[i];
+                b = dst[i];
             } else {
-                a = edges[i][1];
-                b = edges[i][0];
+                a = dst[i];
+                b = src[i];
             }
             var side = sides[i];
             int ax, ay, bx, by;
@@ -519,7 +689,7 @@ public class Graph {
                 if (x != 0) {
                     if (Cell.connects_horizontally(grid[x - 1][y], grid[x][y])) {
                         int edge = Cell.edge_horizontally_between(grid[x - 1][y], grid[x][y]);
-                        sb.append(colorize("─", edge_colors.getOrDefault(edge, Attribute.NONE())));
+                        sb.append(colorize("─", edge_colors.get(edge)));
                     } else
                         sb.append(' ');
                 }
@@ -527,15 +697,10 @@ public class Graph {
                     sb.append('·');
                 else if (grid[x][y] instanceof Path path) {
                     Integer edge = path.get_edge();
-                    Attribute attr = Attribute.NONE();
-                    if (edge != null && edge_colors.containsKey(edge))
-                        attr = edge_colors.get(edge);
+                    Attribute attr = edge != null ? edge_colors.get(edge) : Attribute.NONE();
                     sb.append(colorize(path.toString(), attr));
                 } else if (grid[x][y] instanceof Node node) {
-                    sb.append(colorize(
-                            node.toString(),
-                            vertex_colors.getOrDefault(node.vertex, Attribute.NONE())
-                    ));
+                    sb.append(colorize(node.toString(), vertex_colors.get(node.vertex)));
                 } else { // this will never be used
                     sb.append(grid[x][y]);
                 }
@@ -566,17 +731,9 @@ public class Graph {
         g.print_grid();
 
 
-//		g.edge_colors = new HashMap<>();
-//		g.edge_colors.put(2, Attribute.TEXT_COLOR(255, 0, 0));
-//		g.edge_colors.put(4, Attribute.TEXT_COLOR(0, 255, 0));
-
-        g.edge_colors = Map.of(
-                2, Attribute.TEXT_COLOR(255, 0, 0),
-                4, Attribute.TEXT_COLOR(0, 255, 0)
-        );
-        g.vertex_colors = Map.of(
-                3, Attribute.TEXT_COLOR(5, 100, 30)
-        );
+        g.edge_colors.set(2, Attribute.TEXT_COLOR(255, 0, 0));
+        g.edge_colors.set(4, Attribute.TEXT_COLOR(0, 255, 0));
+        g.vertex_colors.set(3, Attribute.TEXT_COLOR(5, 100, 30));
 
         System.out.println();
 //		System.out.println();
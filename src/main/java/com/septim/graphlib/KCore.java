@@ -0,0 +1,82 @@
+package com.septim.graphlib;
+
+/**
+ * Core decomposition of the simple undirected graph, parallel edges and self loops are ignored.
+ * <br/>
+ * the k-core is the largest subgraph in which every vertex has at least k neighbors, the core number of a
+ * vertex is the largest k whose core contains it. Computed in O(V + E) by repeatedly removing a vertex of
+ * minimum remaining degree, with vertices kept in an array sorted by degree (Batagelj and Zaversnik).
+ */
+public class KCore {
+
+    /**
+     * Computes the core number of every vertex.
+     *
+     * @param graph the graph
+     * @return the core numbers
+     */
+    public static int[] core_numbers(Graph graph) {
+        Adjacency adj = Adjacency.of(graph).simple();
+        int n = adj.N;
+        int[] degree = new int[n];
+        int max = 0;
+        for (int u = 0; u < n; u++) {
+            degree[u] = adj.degree(u);
+            max = Math.max(max, degree[u]);
+        }
+
+        // bucket sort by degree, bin[d] is the position of the first vertex of degree d
+        int[] bin = new int[max + 1];
+        for (int u = 0; u < n; u++)
+            bin[degree[u]]++;
+        for (int d = 0, start = 0; d <= max; d++) {
+            int count = bin[d];
+            bin[d] = start;
+            start += count;
+        }
+        int[] order = new int[n], position = new int[n];
+        for (int u = 0; u < n; u++) {
+            position[u] = bin[degree[u]]++;
+            order[position[u]] = u;
+        }
+        for (int d = max; d > 0; d--)
+            bin[d] = bin[d - 1];
+        bin[0] = 0;
+
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                int v = adj.targets[k];
+                if (degree[v] <= degree[u]) continue;
+                // move v to the front of its bucket, then shrink the bucket by one
+                int dv = degree[v], pv = position[v], pw = bin[dv], w = order[pw];
+                if (v != w) {
+                    order[pv] = w;
+                    position[w] = pv;
+                    order[pw] = v;
+                    position[v] = pw;
+                }
+                bin[dv]++;
+                degree[v]--;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * Returns the vertices of the k-core.
+     *
+     * @param core_numbers the core numbers
+     * @param k            the core
+     * @return the vertices with core number at least k
+     */
+    public static int[] core(int[] core_numbers, int k) {
+        int count = 0;
+        for (int c : core_numbers)
+            if (c >= k) count++;
+        int[] vertices = new int[count];
+        for (int u = 0, i = 0; u < core_numbers.length; u++)
+            if (core_numbers[u] >= k) vertices[i++] = u;
+        return vertices;
+    }
+}
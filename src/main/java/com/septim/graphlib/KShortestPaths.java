@@ -0,0 +1,339 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * The k shortest loopless paths between two vertices with Yen's algorithm.
+ * <br/>
+ * every accepted path is deviated from at each of its vertices (only from its own deviation vertex on, as Lawler
+ * showed): the spur search from that vertex may not use the root path before it, nor the next edge of any accepted
+ * path sharing the same root. Removed edges and vertices are marked in bitsets instead of copying the graph.
+ * A reverse shortest path tree from the target gives exact distances to it, they guide the spur searches as
+ * an A* heuristic, and when the tree path of the spur vertex avoids everything removed it is taken without a search.
+ * Candidates wait in a binary heap of primitive keys.
+ */
+public class KShortestPaths {
+
+    /**
+     * A path.
+     *
+     * @param length   sum of the weights of its edges
+     * @param vertices the vertices from source to target
+     * @param edges    the edges, edges[i] leads from vertices[i] to vertices[i + 1]
+     */
+    public record Path(int length, int[] vertices, int[] edges) {}
+
+    public final Graph graph;
+    public final int[] weights;
+    public final boolean directed;
+
+    private final Adjacency adj, reverse;
+
+    /**
+     * Prepares queries where edges can be used in both directions, like in {@link Dijkstra}.
+     *
+     * @param graph   the graph
+     * @param weights non-negative edge weights
+     */
+    public KShortestPaths(Graph graph, int[] weights) {
+        this(graph, weights, false);
+    }
+
+    /**
+     * Prepares queries.
+     *
+     * @param graph    the graph
+     * @param weights  non-negative edge weights
+     * @param directed true if edge {a, b} only leads from a to b
+     */
+    public KShortestPaths(Graph graph, int[] weights, boolean directed) {
+        for (int w : weights)
+            if (w < 0) throw new IllegalArgumentException("negative weight " + w);
+        this.graph = graph;
+        this.weights = weights;
+        this.directed = directed;
+        adj = directed ? Adjacency.directed(graph) : Adjacency.of(graph);
+        reverse = directed ? Adjacency.reversed(graph) : adj;
+    }
+
+    /**
+     * Finds the k shortest loopless paths, queries can run concurrently.
+     *
+     * @param source the first vertex
+     * @param target the last vertex
+     * @param k      the number of paths
+     * @return up to k paths by increasing length, fewer if there are no more
+     */
+    public List<Path> query(int source, int target, int k) {
+        return new Query(source, target).run(k);
+    }
+
+    /**
+     * State of one query.
+     */
+    private final class Query {
+        final int source, target, n;
+        final int[] to_target; // distance to the target, Integer.MAX_VALUE if it is unreachable
+        final int[] tree_edge; // first edge of a shortest path to the target
+
+        final Mask removed_vertices, removed_edges;
+        final int[] g, via;
+        final RadixHeap heap = new RadixHeap();
+        final Neighbors.Cursor it = adj.cursor();
+        int[] touched = new int[64];
+        int touched_size;
+
+        final List<Path> candidates = new ArrayList<>();
+        final List<Integer> candidate_deviation = new ArrayList<>();
+        final Set<IntBuffer> seen = new HashSet<>();
+        long[] candidate_heap = new long[16];
+        int candidate_size;
+
+        Query(int source, int target) {
+            this.source = source;
+            this.target = target;
+            n = graph.N;
+            to_target = new int[n];
+            Arrays.fill(to_target, Integer.MAX_VALUE);
+            to_target[target] = 0;
+            tree_edge = new int[n];
+            try {
+                Dijkstra.Callback callback = (vertex, edge) -> tree_edge[vertex] = edge;
+                switch (Dijkstra.select_mode(weights)) {
+                    case bfs -> Dijkstra.run_bfs(reverse, target, weights, to_target, callback, Limit.NONE);
+                    case zero_one_bfs -> Dijkstra.run_zero_one_bfs(reverse, target, weights, to_target, callback, Limit.NONE);
+                    case dial -> Dijkstra.run_dial(reverse, target, weights, to_target, callback, Limit.NONE);
+                    default -> Dijkstra.run_radix(reverse, target, weights, to_target, callback, Limit.NONE);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            removed_vertices = new Mask(n);
+            removed_edges = new Mask(weights.length);
+            g = new int[n];
+            Arrays.fill(g, Integer.MAX_VALUE);
+            via = new int[n];
+        }
+
+        List<Path> run(int k) {
+            List<Path> accepted = new ArrayList<>();
+            List<Integer> deviation = new ArrayList<>();
+            if (k <= 0 || to_target[source] == Integer.MAX_VALUE) return accepted;
+
+            Path first = tree_path(source, new int[]{source}, new int[0], 0);
+            accepted.add(first);
+            deviation.add(0);
+            seen.add(IntBuffer.wrap(first.edges()));
+
+            while (accepted.size() < k) {
+                Path last = accepted.get(accepted.size() - 1);
+                spur_all(last, deviation.get(deviation.size() - 1), accepted);
+                if (candidate_size == 0) break;
+                int best = pop_candidate();
+                accepted.add(candidates.get(best));
+                deviation.add(candidate_deviation.get(best));
+                candidates.set(best, null);
+            }
+            return accepted;
+        }
+
+        /*
+         * The spur_all method creates the candidates deviating from a path at each vertex from its deviation on.
+         * Accepted paths sharing the root are narrowed down while the root grows.
+         */
+        void spur_all(Path path, int from, List<Path> accepted) {
+            int[] vertices = path.vertices(), edges = path.edges();
+            List<int[]> sharing = new ArrayList<>();
+            for (Path other : accepted)
+                if (other.edges().length > from && Arrays.equals(other.edges(), 0, from, edges, 0, from))
+                    sharing.add(other.edges());
+
+            int root_length = 0;
+            for (int i = 0; i < from; i++) {
+                root_length += weights[edges[i]];
+                removed_vertices.set(vertices[i]);
+            }
+            for (int i = from; i < edges.length; i++) {
+                int spur = vertices[i];
+                if (i > from) {
+                    int previous = edges[i - 1], position = i;
+                    sharing.removeIf(other -> other.length <= position || other[position - 1] != previous);
+                }
+                for (int[] other : sharing)
+                    removed_edges.set(other[i]);
+
+                spur(vertices, edges, i, root_length);
+
+                for (int[] other : sharing)
+                    removed_edges.clear(other[i]);
+                removed_vertices.set(spur);
+                root_length += weights[edges[i]];
+            }
+            for (int i = 0; i < edges.length; i++)
+                removed_vertices.clear(vertices[i]);
+        }
+
+        void spur(int[] vertices, int[] edges, int i, int root_length) {
+            int spur = vertices[i];
+            if (to_target[spur] == Integer.MAX_VALUE) return;
+            int[] root_vertices = Arrays.copyOf(vertices, i + 1);
+            int[] root_edges = Arrays.copyOf(edges, i);
+
+            Path path = tree_intact(spur) ? tree_path(spur, root_vertices, root_edges, root_length) : search(spur, root_vertices, root_edges, root_length);
+            if (path == null || !seen.add(IntBuffer.wrap(path.edges()))) return;
+            candidates.add(path);
+            candidate_deviation.add(i);
+            push_candidate(path.length(), candidates.size() - 1);
+        }
+
+        /**
+         * @return true if the tree path from the spur vertex uses no removed edge or vertex
+         */
+        boolean tree_intact(int spur) {
+            for (int v = spur; v != target; ) {
+                int e = tree_edge[v];
+                if (removed_edges.get(e)) return false;
+                v = other(e, v);
+                if (removed_vertices.get(v)) return false;
+            }
+            return true;
+        }
+
+        Path tree_path(int spur, int[] root_vertices, int[] root_edges, int root_length) {
+            int hops = 0;
+            for (int v = spur; v != target; v = other(tree_edge[v], v))
+                hops++;
+            int[] vertices = Arrays.copyOf(root_vertices, root_vertices.length + hops);
+            int[] edges = Arrays.copyOf(root_edges, root_edges.length + hops);
+            for (int v = spur, j = root_edges.length; v != target; j++) {
+                edges[j] = tree_edge[v];
+                v = other(edges[j], v);
+                vertices[j + 1] = v;
+            }
+            return new Path(root_length + to_target[spur], vertices, edges);
+        }
+
+        /*
+         * The search method runs A* from the spur vertex, the distances to the target are a consistent heuristic
+         * for the graph with removed edges and vertices, so keys never decrease and the radix heap can be used.
+         */
+        Path search(int spur, int[] root_vertices, int[] root_edges, int root_length) {
+            heap.clear();
+            touched_size = 0;
+            g[spur] = 0;
+            via[spur] = -1;
+            touch(spur);
+            heap.push(to_target[spur], spur);
+            boolean found = false;
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                if (heap.key() != g[u] + to_target[u]) continue; // stale entry
+                if (u == target) {
+                    found = true;
+                    break;
+                }
+                for (it.reset(u); it.next(); ) {
+                    int v = it.target(), e = it.edge();
+                    if (to_target[v] == Integer.MAX_VALUE || removed_vertices.get(v) || removed_edges.get(e))
+                        continue;
+                    int through = g[u] + weights[e];
+                    if (through >= 0 && through < g[v] && through + to_target[v] >= 0) {
+                        if (g[v] == Integer.MAX_VALUE) touch(v);
+                        g[v] = through;
+                        via[v] = e;
+                        heap.push(through + to_target[v], v);
+                    }
+                }
+            }
+
+            Path path = null;
+            if (found) {
+                int hops = 0;
+                for (int v = target; v != spur; v = other(via[v], v))
+                    hops++;
+                int[] vertices = Arrays.copyOf(root_vertices, root_vertices.length + hops);
+                int[] edges = Arrays.copyOf(root_edges, root_edges.length + hops);
+                for (int v = target, j = edges.length - 1; v != spur; j--) {
+                    vertices[j + 1] = v;
+                    edges[j] = via[v];
+                    v = other(via[v], v);
+                }
+                path = new Path(root_length + g[target], vertices, edges);
+            }
+            for (int i = 0; i < touched_size; i++)
+                g[touched[i]] = Integer.MAX_VALUE;
+            return path;
+        }
+
+        void touch(int v) {
+            if (touched_size == touched.length)
+                touched = Arrays.copyOf(touched, touched_size * 2);
+            touched[touched_size++] = v;
+        }
+
+        int other(int edge, int v) {
+            return graph.other(edge, v);
+        }
+
+        void push_candidate(int length, int index) {
+            if (candidate_size == candidate_heap.length)
+                candidate_heap = Arrays.copyOf(candidate_heap, candidate_size * 2);
+            long key = ((long) length << 32) | index;
+            int i = candidate_size++;
+            while (i > 0 && candidate_heap[(i - 1) >>> 1] > key) {
+                candidate_heap[i] = candidate_heap[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            candidate_heap[i] = key;
+        }
+
+        int pop_candidate() {
+            long top = candidate_heap[0];
+            long key = candidate_heap[--candidate_size];
+            int i = 0;
+            while (2 * i + 1 < candidate_size) {
+                int child = 2 * i + 1;
+                if (child + 1 < candidate_size && candidate_heap[child + 1] < candidate_heap[child]) child++;
+                if (candidate_heap[child] >= key) break;
+                candidate_heap[i] = candidate_heap[child];
+                i = child;
+            }
+            candidate_heap[i] = key;
+            return (int) top;
+        }
+    }
+
+    /*
+     * The main method measures the latency of k = 10 queries between random vertices of a grid.
+     */
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Graph graph = Benchmark.grid_graph(side);
+        int n = graph.N, m = graph.E;
+        int[] weights = Benchmark.random_weights(m, 100, 43);
+        var paths = new KShortestPaths(graph, weights);
+
+        var random = new SplittableRandom(7);
+        double total = 0, worst = 0;
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            int source = random.nextInt(n), target = random.nextInt(n);
+            long begin = System.nanoTime();
+            found += paths.query(source, target, 10).size();
+            double time = (System.nanoTime() - begin) / 1e6;
+            total += time;
+            worst = Math.max(worst, time);
+        }
+        System.out.printf("%d queries, k = 10: %.1f ms average, %.1f ms worst, %d paths%n", queries, total / queries, worst, found);
+    }
+}
@@ -0,0 +1,535 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Landmark distance tables for distance bounds and A* search (ALT).
+ * <br/>
+ * with the distances from a few landmark vertices to all vertices, the triangle inequality bounds the distance of
+ * any pair: |d(L, u) - d(L, v)| <= d(u, v) <= d(L, u) + d(L, v). The lower bound is a consistent A* heuristic,
+ * which lets searches towards the target settle far fewer vertices than Dijkstra. Edges are used in both
+ * directions like in {@link Dijkstra}. The table is stored by vertex, the distances of one vertex to all landmarks
+ * are next to each other, and it can be saved to a file that is later memory-mapped instead of read.
+ */
+public class Landmarks {
+
+    /**
+     * How landmarks are picked, both work on hop distances so that choosing them costs only a few BFS.
+     * <br/>
+     * farthest - each landmark is the vertex farthest from the ones picked before
+     * <br/>
+     * avoid - each landmark is a leaf of a shortest path tree in the region the picked landmarks cover worst,
+     * after Goldberg and Werneck
+     */
+    public enum Selection {farthest, avoid}
+
+    static final int MAGIC = 0x414c5431; // "ALT1"
+
+    public final int N; // number of vertices
+    public final int K; // number of landmarks
+    public final int[] landmarks; // vertex of every landmark
+    private final IntBuffer table; // distance from landmark l to vertex v at v * K + l, Integer.MAX_VALUE if unreachable
+
+    private Landmarks(int N, int[] landmarks, IntBuffer table) {
+        this.N = N;
+        this.K = landmarks.length;
+        this.landmarks = landmarks;
+        this.table = table;
+    }
+
+    /**
+     * Picks landmarks and computes their tables.
+     *
+     * @param graph     the graph
+     * @param weights   non-negative edge weights
+     * @param k         number of landmarks
+     * @param selection how landmarks are picked
+     * @param seed      the random seed for the first landmark
+     * @param threads   number of threads computing the tables
+     * @return the landmarks
+     */
+    public static Landmarks compute(Graph graph, int[] weights, int k, Selection selection, long seed, int threads) {
+        Adjacency adj = Adjacency.of(graph);
+        int[] picked = switch (selection) {
+            case farthest -> farthest(adj, Math.min(k, adj.N), seed);
+            case avoid -> avoid(adj, Math.min(k, adj.N), seed);
+        };
+        return of(adj, weights, picked, threads);
+    }
+
+    /**
+     * Computes the tables of given landmarks, one Dijkstra per landmark on a pool of threads.
+     *
+     * @param adj       the adjacency, Adjacency.of(graph)
+     * @param weights   non-negative edge weights
+     * @param landmarks the landmark vertices
+     * @param threads   number of threads
+     * @return the landmarks
+     */
+    public static Landmarks of(Adjacency adj, int[] weights, int[] landmarks, int threads) {
+        int n = adj.N, k = landmarks.length;
+        if ((long) n * k > Integer.MAX_VALUE / 4)
+            throw new IllegalArgumentException("table of " + n + " x " + k + " distances is too large");
+        Dijkstra.Mode mode = Dijkstra.select_mode(weights);
+        if (mode == Dijkstra.Mode.heap)
+            throw new IllegalArgumentException("landmark distances need non-negative weights");
+
+        int[] table = new int[n * k];
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                int[] distances = new int[n];
+                for (int l = next.getAndIncrement(); l < k; l = next.getAndIncrement()) {
+                    Arrays.fill(distances, Integer.MAX_VALUE);
+                    distances[landmarks[l]] = 0;
+                    search(adj, mode, landmarks[l], weights, distances);
+                    for (int v = 0; v < n; v++)
+                        table[v * k + l] = distances[v];
+                }
+                return null;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("landmark tables failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Landmarks(n, landmarks.clone(), IntBuffer.wrap(table));
+    }
+
+    private static void search(Adjacency adj, Dijkstra.Mode mode, int start, int[] weights, int[] distances) throws IOException {
+        Dijkstra.Callback ignore = (vertex, edge) -> {};
+        switch (mode) {
+            case bfs -> Dijkstra.run_bfs(adj, start, weights, distances, ignore, Limit.NONE);
+            case zero_one_bfs -> Dijkstra.run_zero_one_bfs(adj, start, weights, distances, ignore, Limit.NONE);
+            case dial -> Dijkstra.run_dial(adj, start, weights, distances, ignore, Limit.NONE);
+            default -> Dijkstra.run_radix(adj, start, weights, distances, ignore, Limit.NONE);
+        }
+    }
+
+    /**
+     * Breadth first search.
+     *
+     * @param hops   filled with the number of hops from the root, must be Integer.MAX_VALUE for unvisited vertices
+     * @param parent filled with the BFS tree, may be null
+     * @param order  filled with the visited vertices in BFS order
+     * @return number of visited vertices
+     */
+    private static int bfs(Adjacency adj, int root, int[] hops, int[] parent, int[] order) {
+        int last = 0;
+        hops[root] = 0;
+        if (parent != null) parent[root] = -1;
+        order[last++] = root;
+        for (int first = 0; first < last; first++) {
+            int u = order[first];
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                int v = adj.targets[k];
+                if (hops[v] == Integer.MAX_VALUE) {
+                    hops[v] = hops[u] + 1;
+                    if (parent != null) parent[v] = u;
+                    order[last++] = v;
+                }
+            }
+        }
+        return last;
+    }
+
+    /*
+     * The farthest method starts from the vertex farthest from a random one and keeps adding the vertex with the
+     * largest hop distance to its nearest landmark. Vertices no landmark reaches count as farthest,
+     * so every component gets a landmark before any gets a second one.
+     */
+    static int[] farthest(Adjacency adj, int k, long seed) {
+        int n = adj.N;
+        int[] picked = new int[k];
+        int[] nearest = new int[n], hops = new int[n], order = new int[n];
+        Arrays.fill(hops, Integer.MAX_VALUE);
+        int reached = bfs(adj, new SplittableRandom(seed).nextInt(n), hops, null, order);
+        int first = order[reached - 1];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+
+        for (int i = 0, candidate = first; i < k; i++) {
+            picked[i] = candidate;
+            Arrays.fill(hops, Integer.MAX_VALUE);
+            bfs(adj, candidate, hops, null, order);
+            int best = -1;
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], hops[v]);
+                if (best == -1 || nearest[v] > nearest[best]) best = v;
+            }
+            candidate = best;
+        }
+        return picked;
+    }
+
+    /*
+     * The avoid method grows a BFS tree from a random root, weighs every vertex by how much the landmarks
+     * underestimate its distance to the root, and sums the weights over subtrees, where subtrees containing a landmark
+     * count as zero. Following the heaviest child from the root down to a leaf gives the next landmark.
+     */
+    static int[] avoid(Adjacency adj, int k, long seed) {
+        int n = adj.N;
+        var random = new SplittableRandom(seed);
+        int[] picked = farthest(adj, 1, seed);
+        int count = 1;
+        picked = Arrays.copyOf(picked, k);
+        int[][] tables = new int[k][];
+        int[] order = new int[n], parent = new int[n], best_child = new int[n];
+        Arrays.fill(best_child, -1);
+        long[] size = new long[n];
+        boolean[] is_landmark = new boolean[n], covered = new boolean[n];
+        is_landmark[picked[0]] = true;
+
+        while (true) {
+            int[] last_table = new int[n];
+            Arrays.fill(last_table, Integer.MAX_VALUE);
+            bfs(adj, picked[count - 1], last_table, null, order);
+            tables[count - 1] = last_table;
+            if (count == k) break;
+
+            int root = random.nextInt(n);
+            int[] hops = new int[n];
+            Arrays.fill(hops, Integer.MAX_VALUE);
+            int reached = bfs(adj, root, hops, parent, order);
+            for (int i = reached - 1; i >= 0; i--) {
+                int v = order[i];
+                int lower = 0;
+                for (int l = 0; l < count; l++) {
+                    int a = tables[l][root], b = tables[l][v];
+                    if (a != Integer.MAX_VALUE && b != Integer.MAX_VALUE)
+                        lower = Math.max(lower, Math.abs(a - b));
+                }
+                size[v] += hops[v] - lower;
+                covered[v] |= is_landmark[v];
+                if (covered[v]) size[v] = 0;
+                int p = parent[v];
+                if (p != -1) {
+                    size[p] += size[v];
+                    covered[p] |= covered[v];
+                    if (best_child[p] == -1 || size[v] > size[best_child[p]]) best_child[p] = v;
+                }
+            }
+            int leaf = root;
+            while (best_child[leaf] != -1 && size[best_child[leaf]] > 0)
+                leaf = best_child[leaf];
+            if (is_landmark[leaf]) {
+                do leaf = random.nextInt(n); while (is_landmark[leaf]);
+            }
+            for (int i = 0; i < reached; i++) {
+                int v = order[i];
+                size[v] = 0;
+                covered[v] = false;
+                best_child[v] = -1;
+            }
+            picked[count++] = leaf;
+            is_landmark[leaf] = true;
+        }
+        return picked;
+    }
+
+    /**
+     * @param l the landmark index
+     * @param v the vertex
+     * @return distance between landmark l and v, Integer.MAX_VALUE if unreachable
+     */
+    public int distance(int l, int v) {
+        return table.get(v * K + l);
+    }
+
+    /**
+     * Lower bound of the distance between two vertices.
+     *
+     * @return the bound, Integer.MAX_VALUE if some landmark reaches only one of them
+     */
+    public int lower_bound(int u, int v) {
+        int lower = 0, a = u * K, b = v * K;
+        for (int l = 0; l < K; l++) {
+            int du = table.get(a + l), dv = table.get(b + l);
+            if (du == Integer.MAX_VALUE || dv == Integer.MAX_VALUE) {
+                if (du != dv) return Integer.MAX_VALUE;
+                continue;
+            }
+            lower = Math.max(lower, Math.abs(du - dv));
+        }
+        return lower;
+    }
+
+    /**
+     * Upper bound of the distance between two vertices.
+     *
+     * @return the bound, Long.MAX_VALUE if no landmark reaches both
+     */
+    public long upper_bound(int u, int v) {
+        long upper = Long.MAX_VALUE;
+        int a = u * K, b = v * K;
+        for (int l = 0; l < K; l++) {
+            int du = table.get(a + l), dv = table.get(b + l);
+            if (du != Integer.MAX_VALUE && dv != Integer.MAX_VALUE)
+                upper = Math.min(upper, (long) du + dv);
+        }
+        return upper;
+    }
+
+    /**
+     * Bounds the distances of many pairs at once, in parallel.
+     *
+     * @param sources first vertex of every pair
+     * @param targets second vertex of every pair
+     * @param lower   filled with the lower bounds
+     * @param upper   filled with the upper bounds, may be null
+     */
+    public void estimate(int[] sources, int[] targets, int[] lower, long[] upper) {
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            lower[i] = lower_bound(sources[i], targets[i]);
+            if (upper != null) upper[i] = upper_bound(sources[i], targets[i]);
+        });
+    }
+
+    /**
+     * Creates the state for A* searches, one per thread.
+     *
+     * @param neighbors the graph the landmarks were computed for, with edges in both directions
+     * @param weights   the weights the landmarks were computed with
+     * @return the search
+     */
+    public Search search(Neighbors neighbors, int[] weights) {
+        return new Search(neighbors, weights);
+    }
+
+    /**
+     * A* search with the landmark lower bounds as heuristic.
+     */
+    public final class Search {
+        final Neighbors.Cursor it;
+        final int[] weights;
+        final int[] g, h, via; // h is -1 until computed
+        final int[] target_row = new int[K];
+        final RadixHeap heap = new RadixHeap();
+        int[] touched = new int[64];
+        int touched_size, source, target;
+        public int settled; // vertices settled by the last run
+
+        Search(Neighbors neighbors, int[] weights) {
+            it = neighbors.cursor();
+            this.weights = weights;
+            g = new int[N];
+            h = new int[N];
+            via = new int[N];
+            Arrays.fill(g, Integer.MAX_VALUE);
+            Arrays.fill(h, -1);
+        }
+
+        /**
+         * Finds the distance between two vertices.
+         *
+         * @return the distance, Integer.MAX_VALUE if unreachable
+         */
+        public int run(int source, int target) {
+            for (int i = 0; i < touched_size; i++) {
+                g[touched[i]] = Integer.MAX_VALUE;
+                h[touched[i]] = -1;
+            }
+            touched_size = 0;
+            heap.clear();
+            settled = 0;
+            this.source = source;
+            this.target = target;
+            for (int l = 0; l < K; l++)
+                target_row[l] = table.get(target * K + l);
+
+            if (heuristic(source) == Integer.MAX_VALUE) return Integer.MAX_VALUE;
+            g[source] = 0;
+            via[source] = -1;
+            heap.push(h[source], source);
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                if (heap.key() != g[u] + h[u]) continue; // stale entry
+                settled++;
+                if (u == target) return g[u];
+                for (it.reset(u); it.next(); ) {
+                    int v = it.target();
+                    int through = g[u] + weights[it.edge()];
+                    if (through < 0 || through >= g[v]) continue;
+                    int estimate = heuristic(v);
+                    if (estimate == Integer.MAX_VALUE || through + estimate < 0) continue;
+                    g[v] = through;
+                    via[v] = u;
+                    heap.push(through + estimate, v);
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * @return the vertices of the path found by the last run, from source to target, or null
+         */
+        public int[] path() {
+            if (g[target] == Integer.MAX_VALUE) return null;
+            int hops = 0;
+            for (int v = target; v != source; v = via[v])
+                hops++;
+            int[] path = new int[hops + 1];
+            for (int v = target, i = hops; i > 0; i--) {
+                path[i] = v;
+                v = via[v];
+            }
+            path[0] = source;
+            return path;
+        }
+
+        private int heuristic(int v) {
+            if (h[v] != -1) return h[v];
+            if (touched_size == touched.length)
+                touched = Arrays.copyOf(touched, touched_size * 2);
+            touched[touched_size++] = v;
+            int lower = 0, a = v * K;
+            for (int l = 0; l < K; l++) {
+                int dv = table.get(a + l), dt = target_row[l];
+                if (dv == Integer.MAX_VALUE || dt == Integer.MAX_VALUE) {
+                    if (dv != dt) return h[v] = Integer.MAX_VALUE;
+                    continue;
+                }
+                lower = Math.max(lower, Math.abs(dv - dt));
+            }
+            return h[v] = lower;
+        }
+    }
+
+    /**
+     * Writes the landmarks to a file: magic, N and K, the K landmark vertices and the table, as little endian ints.
+     *
+     * @param file the file
+     */
+    public void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(N).putInt(K);
+            for (int landmark : landmarks) {
+                flush_if_full(channel, buffer);
+                buffer.putInt(landmark);
+            }
+            for (int i = 0, size = N * K; i < size; i++) {
+                flush_if_full(channel, buffer);
+                buffer.putInt(table.get(i));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static void flush_if_full(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() >= Integer.BYTES) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Maps a file written by {@link #save(Path)}, the table is read from the page cache on demand.
+     *
+     * @param file the file
+     * @return the landmarks
+     */
+    public static Landmarks load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("landmark file is too large to map: " + length + " bytes");
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            if (length < 12 || bytes.getInt() != MAGIC)
+                throw new IllegalArgumentException(file + " is not a landmark file");
+            int n = bytes.getInt(), k = bytes.getInt();
+            if (length != 12 + 4L * k + 4L * n * k)
+                throw new IllegalArgumentException(file + " has " + length + " bytes, expected a table of " + n + " x " + k);
+            int[] landmarks = new int[k];
+            for (int l = 0; l < k; l++)
+                landmarks[l] = bytes.getInt();
+            return new Landmarks(n, landmarks, bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+        }
+    }
+
+    /*
+     * The main method compares both selections on a grid: time to build the tables, quality of the bounds and
+     * vertices settled by A* against Dijkstra, and checks that the mapped tables give the same answers.
+     */
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Graph graph = Benchmark.grid_graph(side);
+        int n = graph.N, m = graph.E;
+        int[] weights = Benchmark.random_weights(m, 100, 43);
+        Adjacency adj = Adjacency.of(graph);
+
+        var random = new SplittableRandom(7);
+        int pairs = 100;
+        int[] sources = random.ints(pairs, 0, n).toArray(), targets = random.ints(pairs, 0, n).toArray();
+        int[] exact = new int[pairs];
+        long dijkstra_settled = 0;
+        int[] distances = new int[n];
+        for (int i = 0; i < pairs; i++) {
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            distances[sources[i]] = 0;
+            Dijkstra.run_dial(adj, sources[i], weights, distances, (vertex, edge) -> {}, Limit.NONE);
+            exact[i] = distances[targets[i]];
+            for (int d : distances)
+                if (d <= exact[i]) dijkstra_settled++;
+        }
+
+        for (Selection selection : Selection.values()) {
+            Landmarks[] built = new Landmarks[1];
+            double build = Benchmark.best_of(1, () -> built[0] = compute(graph, weights, k, selection, 42, threads));
+            Path file = Files.createTempFile("landmarks", ".alt");
+            try {
+                built[0].save(file);
+                Landmarks mapped = load(file);
+                Search search = mapped.search(adj, weights);
+                double gap = 0;
+                long settled = 0;
+                boolean same = true;
+                for (int i = 0; i < pairs; i++) {
+                    int d = exact[i];
+                    gap += d == 0 ? 1 : (double) mapped.lower_bound(sources[i], targets[i]) / d;
+                    same &= search.run(sources[i], targets[i]) == d;
+                    settled += search.settled;
+                }
+                int[] lower = new int[1_000_000];
+                int[] us = random.ints(lower.length, 0, n).toArray(), vs = random.ints(lower.length, 0, n).toArray();
+                double bulk = Benchmark.best_of(3, () -> mapped.estimate(us, vs, lower, null));
+                System.out.printf("%-8s tables %7.1f ms, lower bound %.0f%% of distance, A* settles %d vertices"
+                                + " per query (Dijkstra %d), correct: %b, 1M bounds in %.1f ms%n",
+                        selection, build, 100 * gap / pairs, settled / pairs, dijkstra_settled / pairs, same, bulk);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Deadline and cancellation token of an algorithm run.
+ * <br/>
+ * the algorithms ask {@link #stop(int)} once per iteration with their own iteration count, it only reads the clock
+ * and the cancelled flag every {@code interval} iterations. A stopped run returns what it has settled so far with the
+ * {@link Status} of the limit. A limit holds no state of a run, so one limit may be shared by runs in parallel and
+ * {@link #cancel()} from any thread stops all of them.
+ */
+public class Limit {
+
+    /**
+     * How a run ended.
+     * <br/>
+     * complete - the run finished
+     * <br/>
+     * timed_out - the deadline passed before it finished
+     * <br/>
+     * cancelled - the limit was cancelled before it finished
+     */
+    public enum Status {complete, timed_out, cancelled}
+
+    static final int INTERVAL = 1024;
+
+    /**
+     * Never stops, cancelling it does nothing.
+     */
+    public static final Limit NONE = new Limit(false, 0, Integer.MAX_VALUE);
+
+    private final boolean has_deadline;
+    private final long deadline; // System.nanoTime() at the deadline
+    private final int interval;
+    private volatile boolean cancelled;
+
+    private Limit(boolean has_deadline, long deadline, int interval) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be positive");
+        this.has_deadline = has_deadline;
+        this.deadline = deadline;
+        this.interval = interval;
+    }
+
+    /**
+     * @return a limit without deadline that stops once cancelled
+     */
+    public static Limit cancellable() {
+        return new Limit(false, 0, INTERVAL);
+    }
+
+    /**
+     * @param timeout time the run may take from now
+     * @return a limit that stops after the timeout or once cancelled
+     */
+    public static Limit after(Duration timeout) {
+        return after(timeout, INTERVAL);
+    }
+
+    /**
+     * @param timeout  time the run may take from now
+     * @param interval number of iterations between two checks
+     * @return a limit that stops after the timeout or once cancelled
+     */
+    public static Limit after(Duration timeout, int interval) {
+        return new Limit(true, System.nanoTime() + timeout.toNanos(), interval);
+    }
+
+    /**
+     * Stops the runs using this limit at their next check, does nothing for NONE.
+     */
+    public void cancel() {
+        if (this == NONE) return;
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the limit was cancelled
+     */
+    public boolean is_cancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Checks the limit every interval iterations, starting with the first one since the setup of a run may already
+     * have used up the time.
+     *
+     * @param iteration number of iterations the run did before this one
+     * @return true if the run has to stop
+     */
+    boolean stop(int iteration) {
+        if (this == NONE || iteration % interval != 0) return false;
+        return cancelled || (has_deadline && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * @param finished true if the run finished
+     * @return the status of a run that used this limit
+     */
+    Status status(boolean finished) {
+        if (finished) return Status.complete;
+        return cancelled ? Status.cancelled : Status.timed_out;
+    }
+
+    /*
+     * The main method runs Dijkstra and Prims on a grid under growing deadlines, then cancels a run from another thread.
+     * Runs build their adjacency lists before the first check, short deadlines are overrun by that time.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Graph graph = Benchmark.grid_graph(side);
+        int[] weights = Benchmark.random_weights(graph.E, 1 << 20, 43);
+        Dijkstra dijkstra = new Dijkstra(graph, 0, weights);
+        dijkstra.callback = (vertex, edge) -> {};
+        Prims prims = new Prims(graph, 0, weights);
+        prims.callback = (vertex, edge) -> {};
+
+        for (int millis : new int[]{1, 10, 100, 10_000}) {
+            long begin = System.nanoTime();
+            Dijkstra.Result shortest = dijkstra.run(after(Duration.ofMillis(millis)));
+            double dijkstra_time = (System.nanoTime() - begin) / 1e6;
+            begin = System.nanoTime();
+            Prims.Result tree = prims.run(after(Duration.ofMillis(millis)));
+            double prims_time = (System.nanoTime() - begin) / 1e6;
+            System.out.printf("deadline %5d ms: Dijkstra %-9s %8.1f ms, %7d settled, %5d frontier; "
+                            + "Prims %-9s %8.1f ms, %7d tree edges, %5d frontier%n",
+                    millis, shortest.status(), dijkstra_time, shortest.settled(), shortest.frontier(),
+                    tree.status(), prims_time, tree.tree().size(), tree.frontier());
+        }
+
+        Limit limit = cancellable();
+        var canceller = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            limit.cancel();
+        });
+        canceller.start();
+        Dijkstra.Result result = dijkstra.run(limit);
+        canceller.join();
+        System.out.printf("cancelled after 20 ms: %s, %d settled, %d frontier%n",
+                result.status(), result.settled(), result.frontier());
+    }
+}
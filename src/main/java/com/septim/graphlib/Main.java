@@ -1,11 +1,20 @@
 package com.septim.graphlib;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 public class Main {
 
+    /*
+     * The main method answers queries with the QueryDriver when it gets a graph file, see QueryDriver for the arguments.
+     * Without arguments it runs the demos.
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            QueryDriver.main(args);
+            return;
+        }
         Graph graph = new Graph();
         graph.N = 7;
         int start = 0;
@@ -190,5 +199,18 @@ public class Main {
         Prims prims3 = new Prims(graph2, start2, weights2);
         prims3.run();
 
+        System.out.println("-------------------\n");
+        System.out.println("Running all pairs shortest paths on the complete graph\n");
+
+        AllPairs allPairs = AllPairs.compute(graph2, weights2, false, true, AllPairs.Method.auto, 1);
+        System.out.println("Distances between all nodes, computed by " + allPairs.method + ":");
+        for (int u = 0; u < graph2.N; u++) {
+            StringBuilder row = new StringBuilder();
+            for (int v = 0; v < graph2.N; v++)
+                row.append(String.format("%4d", allPairs.distance(u, v)));
+            System.out.println(row);
+        }
+        System.out.println("Shortest path from node 3 to node 7: " + Arrays.toString(allPairs.path(3, 7)));
+
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.septim.graphlib;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Set of vertex or edge ids as a bitset in a long[], bit i of words[i >>> 6] for id i.
+ * <br/>
+ * and, or and not return new masks, so masks can be combined without changing the ones a {@link SubgraphView}
+ * already uses. Bits beyond the size are always 0.
+ */
+public final class Mask {
+    public final int size; // number of ids
+    public final long[] words;
+
+    /**
+     * Creates an empty mask.
+     *
+     * @param size number of ids
+     */
+    public Mask(int size) {
+        if (size < 0) throw new IllegalArgumentException("negative size");
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * @param size number of ids
+     * @return a mask holding all ids
+     */
+    public static Mask all(int size) {
+        return new Mask(size).not();
+    }
+
+    /**
+     * @param size number of ids
+     * @param test decides for every id if it is in the mask
+     * @return the mask of ids passing the test
+     */
+    public static Mask of(int size, IntPredicate test) {
+        var mask = new Mask(size);
+        for (int i = 0; i < size; i++)
+            if (test.test(i)) mask.words[i >>> 6] |= 1L << i;
+        return mask;
+    }
+
+    /**
+     * @param i the id
+     * @return true if the id is in the mask
+     */
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i the id to add
+     */
+    public void set(int i) {
+        check(i);
+        words[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * @param i the id to remove
+     */
+    public void clear(int i) {
+        check(i);
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    /**
+     * @return the ids in both masks
+     */
+    public Mask and(Mask other) {
+        same_size(other);
+        var result = new Mask(size);
+        for (int i = 0; i < words.length; i++)
+            result.words[i] = words[i] & other.words[i];
+        return result;
+    }
+
+    /**
+     * @return the ids in either mask
+     */
+    public Mask or(Mask other) {
+        same_size(other);
+        var result = new Mask(size);
+        for (int i = 0; i < words.length; i++)
+            result.words[i] = words[i] | other.words[i];
+        return result;
+    }
+
+    /**
+     * @return the ids not in this mask
+     */
+    public Mask not() {
+        var result = new Mask(size);
+        for (int i = 0; i < words.length; i++)
+            result.words[i] = ~words[i];
+        if ((size & 63) != 0)
+            result.words[words.length - 1] &= (1L << size) - 1;
+        return result;
+    }
+
+    /**
+     * @return number of ids in the mask
+     */
+    public int count() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) throw new IllegalArgumentException("id " + i + " outside 0.." + (size - 1));
+    }
+
+    private void same_size(Mask other) {
+        if (other.size != size) throw new IllegalArgumentException("masks of size " + size + " and " + other.size);
+    }
+}
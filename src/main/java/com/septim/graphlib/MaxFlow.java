@@ -0,0 +1,296 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Maximum flow and minimum cut with the highest-label push-relabel algorithm.
+ * <br/>
+ * the weights of the graph are used as capacities, edge {a, b} carries flow from a to b (or both ways when
+ * undirected). The residual graph is kept in flat arrays ordered by tail vertex, every edge has a forward arc
+ * and a reverse arc. Exact heights are recomputed by a backwards BFS from the sink after a fixed amount of
+ * relabeling work (global relabeling), and when no vertex is left on some height below N, all vertices above
+ * it are lifted to N + 1 at once (gap heuristic), since they cannot reach the sink anymore.
+ * Excess that cannot reach the sink flows back to the source, so the result is a valid flow.
+ */
+public class MaxFlow {
+
+    /**
+     * A maximum flow.
+     *
+     * @param value       the flow value
+     * @param flow        flow of every edge, negative when edge e carries it from graph.dst[e] to graph.src[e]
+     * @param source_side true for the vertices on the source side of a minimum cut
+     */
+    public record Result(long value, long[] flow, boolean[] source_side) {}
+
+    static final int ALPHA = 6, BETA = 12; // global relabeling after ALPHA * N + E relabel work, BETA per relabel
+
+    private final int n, source, sink;
+    private final int[] first, head, rev;
+    private final long[] residual;
+    private final int[] forward; // arc of every edge, -1 for self loops
+    private final long[] capacity;
+
+    private final int[] height, current;
+    private final long[] excess;
+    private final int[] active_head, active_next; // stacks of active vertices per height
+    private final int[] list_head, list_next, list_prev; // all vertices per height below N
+    private int max_active, max_list;
+    private long work;
+
+    private MaxFlow(Graph graph, int[] capacities, int source, int sink, boolean undirected) {
+        this.n = graph.N;
+        this.source = source;
+        this.sink = sink;
+        int m = graph.E;
+
+        first = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            if (graph.src[i] == graph.dst[i]) continue;
+            first[graph.src[i] + 1]++;
+            first[graph.dst[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++)
+            first[u + 1] += first[u];
+        int arcs = first[n];
+        head = new int[arcs];
+        rev = new int[arcs];
+        residual = new long[arcs];
+        forward = new int[m];
+        capacity = new long[m];
+        int[] fill = Arrays.copyOf(first, n);
+        for (int i = 0; i < m; i++) {
+            int a = graph.src[i], b = graph.dst[i];
+            if (a == b) {
+                forward[i] = -1;
+                continue;
+            }
+            int p = fill[a]++, q = fill[b]++;
+            head[p] = b;
+            head[q] = a;
+            rev[p] = q;
+            rev[q] = p;
+            residual[p] = capacities[i];
+            residual[q] = undirected ? capacities[i] : 0;
+            forward[i] = p;
+            capacity[i] = capacities[i];
+        }
+
+        height = new int[n];
+        current = new int[n];
+        excess = new long[n];
+        active_head = new int[2 * n + 1];
+        active_next = new int[n];
+        list_head = new int[n];
+        list_next = new int[n];
+        list_prev = new int[n];
+    }
+
+    /**
+     * Computes a maximum flow over directed edges.
+     *
+     * @param graph      the graph
+     * @param capacities non-negative capacity of every edge
+     * @param source     the source vertex
+     * @param sink       the sink vertex
+     * @return the flow
+     */
+    public static Result compute(Graph graph, int[] capacities, int source, int sink) {
+        return compute(graph, capacities, source, sink, false);
+    }
+
+    /**
+     * Computes a maximum flow.
+     *
+     * @param graph      the graph
+     * @param capacities non-negative capacity of every edge
+     * @param source     the source vertex
+     * @param sink       the sink vertex
+     * @param undirected true if edges carry flow in both directions
+     * @return the flow
+     */
+    public static Result compute(Graph graph, int[] capacities, int source, int sink, boolean undirected) {
+        if (source == sink) throw new IllegalArgumentException("source and sink must differ");
+        for (int i = 0; i < graph.E; i++)
+            if (capacities[i] < 0) throw new IllegalArgumentException("negative capacity " + capacities[i] + " of edge " + i);
+        var flow = new MaxFlow(graph, capacities, source, sink, undirected);
+        flow.run();
+        return flow.result();
+    }
+
+    private void run() {
+        height[source] = n;
+        for (int p = first[source]; p < first[source + 1]; p++) {
+            long d = residual[p];
+            residual[p] = 0;
+            residual[rev[p]] += d;
+            excess[head[p]] += d;
+            excess[source] -= d;
+        }
+        global_relabel();
+
+        while (true) {
+            while (max_active >= 0 && active_head[max_active] == -1)
+                max_active--;
+            if (max_active < 0) break;
+            int u = active_head[max_active];
+            active_head[max_active] = active_next[u];
+            discharge(u);
+            if (work > (long) ALPHA * n + head.length / 2) {
+                global_relabel();
+                work = 0;
+            }
+        }
+    }
+
+    /*
+     * The discharge method pushes the excess of u over admissible arcs, relabeling u when it has none left.
+     */
+    private void discharge(int u) {
+        while (excess[u] > 0) {
+            int p = current[u];
+            if (p == first[u + 1]) {
+                relabel(u);
+                if (height[u] >= 2 * n) break; // cannot happen for a valid preflow
+                continue;
+            }
+            int v = head[p];
+            if (residual[p] > 0 && height[u] == height[v] + 1) {
+                long d = Math.min(excess[u], residual[p]);
+                residual[p] -= d;
+                residual[rev[p]] += d;
+                excess[u] -= d;
+                if (excess[v] == 0 && v != sink && v != source)
+                    activate(v);
+                excess[v] += d;
+                if (residual[p] == 0) current[u]++;
+            } else {
+                current[u]++;
+            }
+        }
+        if (excess[u] > 0) activate(u);
+    }
+
+    private void relabel(int u) {
+        work += BETA + first[u + 1] - first[u];
+        int old = height[u];
+        int lowest = 2 * n;
+        for (int p = first[u]; p < first[u + 1]; p++) {
+            if (residual[p] > 0 && height[head[p]] + 1 < lowest) {
+                lowest = height[head[p]] + 1;
+                current[u] = p;
+            }
+        }
+        if (old < n) {
+            list_remove(u, old);
+            if (list_head[old] == -1) {
+                // gap: nothing above old can reach the sink anymore
+                for (int h = old + 1; h <= max_list; h++) {
+                    for (int v = list_head[h]; v != -1; v = list_next[v])
+                        height[v] = n + 1;
+                    list_head[h] = -1;
+                }
+                max_list = old - 1;
+                lowest = Math.max(lowest, n + 1);
+            }
+        }
+        height[u] = lowest;
+        if (lowest < n) list_add(u, lowest);
+    }
+
+    /*
+     * The global_relabel method sets exact heights: distance to the sink in the residual graph,
+     * or N + distance to the source for vertices that cannot reach the sink.
+     */
+    private void global_relabel() {
+        Arrays.fill(height, 2 * n);
+        Arrays.fill(active_head, -1);
+        Arrays.fill(list_head, -1);
+        max_active = -1;
+        max_list = -1;
+        int[] queue = new int[n];
+        for (int root : new int[]{sink, source}) {
+            int first_in_queue = 0, last = 0;
+            height[root] = root == sink ? 0 : n;
+            queue[last++] = root;
+            while (first_in_queue < last) {
+                int v = queue[first_in_queue++];
+                for (int p = first[v]; p < first[v + 1]; p++) {
+                    int u = head[p];
+                    if (height[u] == 2 * n && residual[rev[p]] > 0) {
+                        height[u] = height[v] + 1;
+                        queue[last++] = u;
+                    }
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            current[u] = first[u];
+            if (height[u] < n) list_add(u, height[u]);
+            if (excess[u] > 0 && u != sink && u != source) activate(u);
+        }
+    }
+
+    private void activate(int u) {
+        int h = height[u];
+        active_next[u] = active_head[h];
+        active_head[h] = u;
+        max_active = Math.max(max_active, h);
+    }
+
+    private void list_add(int u, int h) {
+        list_prev[u] = -1;
+        list_next[u] = list_head[h];
+        if (list_head[h] != -1) list_prev[list_head[h]] = u;
+        list_head[h] = u;
+        max_list = Math.max(max_list, h);
+    }
+
+    private void list_remove(int u, int h) {
+        if (list_prev[u] != -1) list_next[list_prev[u]] = list_next[u];
+        else list_head[h] = list_next[u];
+        if (list_next[u] != -1) list_prev[list_next[u]] = list_prev[u];
+    }
+
+    private Result result() {
+        long[] flow = new long[forward.length];
+        for (int i = 0; i < forward.length; i++)
+            if (forward[i] != -1)
+                flow[i] = capacity[i] - residual[forward[i]];
+
+        boolean[] source_side = new boolean[n];
+        int[] queue = new int[n];
+        int last = 0;
+        source_side[source] = true;
+        queue[last++] = source;
+        for (int i = 0; i < last; i++) {
+            int u = queue[i];
+            for (int p = first[u]; p < first[u + 1]; p++) {
+                if (residual[p] > 0 && !source_side[head[p]]) {
+                    source_side[head[p]] = true;
+                    queue[last++] = head[p];
+                }
+            }
+        }
+        return new Result(excess[sink], flow, source_side);
+    }
+
+    /*
+     * The main method computes a flow on a random graph and checks that its value equals the capacity of the cut.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 4_000_000;
+        Graph graph = Benchmark.random_graph(n, m, 42);
+        int[] capacities = Benchmark.random_weights(m, 1000, 43);
+
+        Result[] result = new Result[1];
+        double time = Benchmark.best_of(3, () -> result[0] = compute(graph, capacities, 0, n - 1));
+        long cut = 0;
+        for (int i = 0; i < m; i++)
+            if (result[0].source_side()[graph.src[i]] && !result[0].source_side()[graph.dst[i]])
+                cut += capacities[i];
+        System.out.printf("max flow %d, min cut %d, %.1f ms%n", result[0].value(), cut, time);
+    }
+}
@@ -0,0 +1,48 @@
+package com.septim.graphlib;
+
+/**
+ * Source of neighbor lists for the search algorithms.
+ * <br/>
+ * implemented by {@link Adjacency}, which keeps plain arrays, by {@link CompressedGraph}, which decodes
+ * neighbors on the fly, and by {@link SubgraphView}, which filters another source by masks. A cursor is reused for
+ * every vertex, so walking the neighbors allocates nothing.
+ */
+public interface Neighbors {
+
+    /**
+     * @return number of vertices
+     */
+    int vertices();
+
+    /**
+     * @return a new cursor, not safe to share between threads
+     */
+    Cursor cursor();
+
+    interface Cursor {
+
+        /**
+         * Positions the cursor before the first neighbor of a vertex.
+         *
+         * @param u the vertex
+         */
+        void reset(int u);
+
+        /**
+         * Moves to the next neighbor.
+         *
+         * @return false if there are no more neighbors
+         */
+        boolean next();
+
+        /**
+         * @return the current neighbor
+         */
+        int target();
+
+        /**
+         * @return index of the edge leading to the current neighbor
+         */
+        int edge();
+    }
+}
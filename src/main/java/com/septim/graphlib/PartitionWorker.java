@@ -0,0 +1,150 @@
+package com.septim.graphlib;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Worker of {@link DistributedShortestPaths}, it owns one part of a {@link Partitioning} and runs in its own
+ * process, or in a thread of the coordinator.
+ * <br/>
+ * in every superstep the worker runs Dijkstra over its own vertices from the vertices that improved, relaxing
+ * cut edges into its ghosts. Ghosts that improved beyond what was sent before go to the coordinator in a batch,
+ * which routes them to their owners for the next superstep. When no batch carries anything, the distances are final.
+ * <br/>
+ * frames: worker sends {HELLO, part}, receives {start local index or -1}, then per superstep sends
+ * {count for every part, (local index at owner, distance) pairs grouped by part} and receives
+ * {CONTINUE or DONE, (local index, distance) pairs}. After DONE it sends the distances of its vertices.
+ */
+public class PartitionWorker {
+
+    static final int HELLO = 1, CONTINUE = 2, DONE = 3;
+
+    final int part, parts, local, ghosts;
+    final int[] ghost_owner, ghost_index; // part and local index at the owner of every ghost
+    final int[] offsets, targets, weights;
+
+    final int[] distances; // local vertices then ghosts, for ghosts the best distance sent so far
+    final RadixHeap heap = new RadixHeap();
+
+    PartitionWorker(Path file) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != Partitioning.MAGIC)
+                throw new IllegalArgumentException(file + " is not a part file");
+            part = in.readInt();
+            parts = in.readInt();
+            local = in.readInt();
+            ghosts = in.readInt();
+            ghost_owner = new int[ghosts];
+            ghost_index = new int[ghosts];
+            for (int g = 0; g < ghosts; g++) {
+                ghost_owner[g] = in.readInt();
+                ghost_index[g] = in.readInt();
+            }
+            offsets = read(in, local + 1);
+            targets = read(in, offsets[local]);
+            weights = read(in, offsets[local]);
+        }
+        distances = new int[local + ghosts];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+    }
+
+    private static int[] read(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    /**
+     * Serves one query over a transport until the coordinator is done, then closes it.
+     *
+     * @param transport the link to the coordinator
+     * @param file      the part file
+     */
+    public static void run(Transport transport, Path file) throws IOException {
+        try (transport) {
+            new PartitionWorker(file).serve(transport);
+        }
+    }
+
+    void serve(Transport transport) throws IOException {
+        transport.send(new int[]{HELLO, part}, 2);
+        int start = transport.receive()[0];
+        if (start >= 0) {
+            distances[start] = 0;
+            heap.push(0, start);
+        }
+
+        int[] touched = new int[16]; // ghosts improved in this superstep
+        boolean[] is_touched = new boolean[ghosts];
+        int[] batch = new int[parts + 16];
+        while (true) {
+            int touched_size = 0;
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                int d = heap.key();
+                if (d != distances[u]) continue; // stale entry
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    int through = d + weights[k];
+                    if (through < 0 || through >= distances[v]) continue;
+                    distances[v] = through;
+                    if (v < local) {
+                        heap.push(through, v);
+                    } else if (!is_touched[v - local]) {
+                        is_touched[v - local] = true;
+                        if (touched_size == touched.length) touched = Arrays.copyOf(touched, touched_size * 2);
+                        touched[touched_size++] = v - local;
+                    }
+                }
+            }
+
+            // group the improved ghosts by owner
+            if (batch.length < parts + 2 * touched_size)
+                batch = new int[parts + 2 * touched_size];
+            Arrays.fill(batch, 0, parts, 0);
+            for (int i = 0; i < touched_size; i++)
+                batch[ghost_owner[touched[i]]]++;
+            int[] position = new int[parts];
+            for (int p = 0, at = parts; p < parts; p++) {
+                position[p] = at;
+                at += 2 * batch[p];
+            }
+            for (int i = 0; i < touched_size; i++) {
+                int g = touched[i], at = position[ghost_owner[g]];
+                batch[at] = ghost_index[g];
+                batch[at + 1] = distances[local + g];
+                position[ghost_owner[g]] = at + 2;
+                is_touched[g] = false;
+            }
+            transport.send(batch, parts + 2 * touched_size);
+
+            int[] incoming = transport.receive();
+            if (incoming[0] == DONE) break;
+            heap.clear(); // empty, but incoming distances may be below the last popped key
+            for (int i = 1; i < incoming.length; i += 2) {
+                int v = incoming[i], d = incoming[i + 1];
+                if (d < distances[v]) {
+                    distances[v] = d;
+                    heap.push(d, v);
+                }
+            }
+        }
+        transport.send(distances, local);
+    }
+
+    /*
+     * The main method is the entry point of worker processes: host and port of the coordinator and the part file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: PartitionWorker <host> <port> <part file>");
+            System.exit(2);
+        }
+        run(SocketTransport.connect(args[0], Integer.parseInt(args[1])), Path.of(args[2]));
+    }
+}
@@ -0,0 +1,198 @@
+package com.septim.graphlib;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Edge-cut partitioning of the vertices of a graph.
+ * <br/>
+ * every vertex belongs to one part, edges between parts are cut. A part is written to its own file with the
+ * edges of its vertices, the cut edges lead to ghost vertices which carry the part and local index of their owner,
+ * so a worker can load its part without the rest of the graph. Edges are used in both directions like in
+ * {@link Dijkstra}.
+ */
+public class Partitioning {
+
+    /**
+     * How vertices are assigned.
+     * <br/>
+     * hash - by a hash of the vertex id, balanced but cuts most edges
+     * <br/>
+     * bfs - regions grown by BFS up to N / parts vertices each, cuts few edges in graphs with locality
+     */
+    public enum Strategy {hash, bfs}
+
+    static final int MAGIC = 0x50415254; // "PART"
+
+    public final int parts;
+    public final int[] owner; // part of every vertex
+    public final int[] local_index; // index of every vertex within its part
+
+    private Partitioning(int parts, int[] owner) {
+        this.parts = parts;
+        this.owner = owner;
+        this.local_index = new int[owner.length];
+        int[] sizes = new int[parts];
+        for (int v = 0; v < owner.length; v++)
+            local_index[v] = sizes[owner[v]]++;
+    }
+
+    /**
+     * Partitions a graph.
+     *
+     * @param graph    the graph
+     * @param parts    number of parts
+     * @param strategy how vertices are assigned
+     * @param seed     the random seed
+     * @return the partitioning
+     */
+    public static Partitioning of(Graph graph, int parts, Strategy strategy, long seed) {
+        if (parts < 1) throw new IllegalArgumentException("parts must be positive");
+        int[] owner = switch (strategy) {
+            case hash -> hash(graph.N, parts, seed);
+            case bfs -> bfs_regions(Adjacency.of(graph), parts);
+        };
+        return new Partitioning(parts, owner);
+    }
+
+    private static int[] hash(int n, int parts, long seed) {
+        int[] owner = new int[n];
+        for (int v = 0; v < n; v++) {
+            long h = (v + seed) * 0x9e3779b97f4a7c15L;
+            h ^= h >>> 32;
+            owner[v] = (int) Long.remainderUnsigned(h, parts);
+        }
+        return owner;
+    }
+
+    /*
+     * The bfs_regions method grows each part by BFS over unassigned vertices until it holds its share,
+     * when a component runs out the BFS continues from the next unassigned vertex.
+     */
+    private static int[] bfs_regions(Adjacency adj, int parts) {
+        int n = adj.N;
+        int[] owner = new int[n];
+        Arrays.fill(owner, -1);
+        int[] queue = new int[n];
+        int scan = 0;
+        for (int p = 0, assigned = 0; p < parts; p++) {
+            int limit = p == parts - 1 ? n : (int) ((long) n * (p + 1) / parts);
+            int first = 0, last = 0;
+            while (assigned < limit) {
+                if (first == last) {
+                    while (owner[scan] != -1) scan++;
+                    owner[scan] = p;
+                    assigned++;
+                    first = last = 0;
+                    queue[last++] = scan;
+                    continue;
+                }
+                int u = queue[first++];
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1] && assigned < limit; k++) {
+                    int v = adj.targets[k];
+                    if (owner[v] == -1) {
+                        owner[v] = p;
+                        assigned++;
+                        queue[last++] = v;
+                    }
+                }
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * @param p the part
+     * @return the vertices of the part, by local index
+     */
+    public int[] members(int p) {
+        int count = 0;
+        for (int o : owner)
+            if (o == p) count++;
+        int[] members = new int[count];
+        for (int v = 0, i = 0; v < owner.length; v++)
+            if (owner[v] == p) members[i++] = v;
+        return members;
+    }
+
+    /**
+     * @return number of edges whose ends are in different parts
+     */
+    public long cut_edges(Graph graph) {
+        long cut = 0;
+        for (int i = 0; i < graph.E; i++)
+            if (owner[graph.src[i]] != owner[graph.dst[i]]) cut++;
+        return cut;
+    }
+
+    /**
+     * Writes every part for a {@link PartitionWorker}.
+     * <br/>
+     * a part file holds ints: magic, part, number of parts, number of local vertices L, number of ghosts G,
+     * owner part and owner local index of every ghost, L + 1 offsets, and the targets and weights of the edges of
+     * every local vertex. Targets below L are local vertices, the others are ghost target - L.
+     *
+     * @param graph     the graph
+     * @param weights   the edge weights
+     * @param directory the directory for the files
+     * @return the file of every part
+     */
+    public Path[] write(Graph graph, int[] weights, Path directory) throws IOException {
+        Adjacency adj = Adjacency.of(graph);
+        int[] ghost = new int[graph.N]; // ghost index + 1 of remote vertices in the current part, 0 if none
+        Path[] files = new Path[parts];
+        for (int p = 0; p < parts; p++) {
+            files[p] = directory.resolve("part-" + p + ".bin");
+            write_part(adj, weights, p, ghost, files[p]);
+        }
+        return files;
+    }
+
+    private void write_part(Adjacency adj, int[] weights, int p, int[] ghost, Path file) throws IOException {
+        int[] members = members(p);
+        int local = members.length;
+        int ghosts = 0;
+        for (int u : members) {
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                int v = adj.targets[k];
+                if (owner[v] != p && ghost[v] == 0) ghost[v] = ++ghosts;
+            }
+        }
+        int[] ghost_vertices = new int[ghosts];
+        for (int u : members)
+            for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++)
+                if (ghost[adj.targets[k]] != 0) ghost_vertices[ghost[adj.targets[k]] - 1] = adj.targets[k];
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(p);
+            out.writeInt(parts);
+            out.writeInt(local);
+            out.writeInt(ghosts);
+            for (int v : ghost_vertices) {
+                out.writeInt(owner[v]);
+                out.writeInt(local_index[v]);
+            }
+            out.writeInt(0);
+            for (int i = 0, offset = 0; i < local; i++) {
+                offset += adj.degree(members[i]);
+                out.writeInt(offset);
+            }
+            for (int u : members) {
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                    int v = adj.targets[k];
+                    out.writeInt(owner[v] == p ? local_index[v] : local + ghost[v] - 1);
+                }
+            }
+            for (int u : members)
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++)
+                    out.writeInt(weights[adj.edge_ids[k]]);
+        }
+        for (int v : ghost_vertices)
+            ghost[v] = 0;
+    }
+}
@@ -0,0 +1,392 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Bulk synchronous vertex-centric engine.
+ * <br/>
+ * in every superstep the program is computed for each vertex that is active or received a message, messages
+ * sent in a superstep arrive in the next one, combined into a single value per vertex. Vertices are split
+ * into contiguous ranges with about the same number of edges, one per worker thread. A worker combines messages
+ * for its own range directly into the next inbox and buffers the others per target range, which the owner
+ * merges after the superstep barrier, so no vertex value or inbox is ever written by two threads.
+ */
+public class Pregel {
+
+    /*
+     * The Program interface is the vertex function, called once per superstep for each active vertex.
+     * A vertex stays active until it calls vote_to_halt, a message activates it again.
+     */
+    public interface Program {
+        void compute(Context context, int vertex);
+    }
+
+    public final Adjacency adj;
+    public final int threads;
+    public final double[] values;
+
+    private final DoubleBinaryOperator combiner;
+    private final int[] bounds; // vertex range of worker w is bounds[w] .. bounds[w + 1] - 1
+    private final boolean[] active;
+    private double[] inbox, next_inbox;
+    private boolean[] has_message, next_has_message;
+    private final Context[] contexts;
+    private int superstep = 0;
+    private double aggregated = 0;
+
+    /**
+     * Creates an engine.
+     *
+     * @param adj      the graph
+     * @param combiner combines two messages to the same vertex, must be associative and commutative
+     * @param threads  number of worker threads
+     */
+    public Pregel(Adjacency adj, DoubleBinaryOperator combiner, int threads) {
+        this.adj = adj;
+        this.combiner = combiner;
+        this.threads = threads;
+        int n = adj.N;
+        values = new double[n];
+        active = new boolean[n];
+        inbox = new double[n];
+        next_inbox = new double[n];
+        has_message = new boolean[n];
+        next_has_message = new boolean[n];
+
+        bounds = new int[threads + 1];
+        long total = adj.targets.length + (long) n;
+        for (int w = 1, u = 0; w <= threads; w++) {
+            long target = total * w / threads;
+            while (u < n && adj.offsets[u] + (long) u < target)
+                u++;
+            bounds[w] = w == threads ? n : u;
+        }
+        contexts = new Context[threads];
+        for (int w = 0; w < threads; w++)
+            contexts[w] = new Context(w);
+    }
+
+    /**
+     * Runs the program until all vertices halted and no messages are in flight, or for a number of supersteps.
+     *
+     * @param program        the vertex program
+     * @param max_supersteps limit on the number of supersteps
+     * @return number of supersteps run
+     */
+    public int run(Program program, int max_supersteps) {
+        Arrays.fill(active, true);
+        Arrays.fill(has_message, false);
+        superstep = 0;
+        aggregated = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "pregel-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Boolean>> compute = new ArrayList<>(), deliver = new ArrayList<>();
+            for (var context : contexts) {
+                compute.add(() -> context.compute(program));
+                deliver.add(context::deliver);
+            }
+            while (superstep < max_supersteps) {
+                boolean running = invoke(pool, compute);
+                running |= invoke(pool, deliver);
+
+                aggregated = 0;
+                for (var context : contexts) {
+                    aggregated += context.aggregate;
+                    context.aggregate = 0;
+                }
+                double[] inbox_swap = inbox;
+                inbox = next_inbox;
+                next_inbox = inbox_swap;
+                boolean[] has_swap = has_message;
+                has_message = next_has_message;
+                next_has_message = has_swap;
+                superstep++;
+                if (!running) break;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return superstep;
+    }
+
+    /**
+     * Runs the tasks and waits for all of them, this is the barrier between the phases.
+     *
+     * @return true if any task returned true
+     */
+    private static boolean invoke(ExecutorService pool, List<Callable<Boolean>> tasks) {
+        boolean any = false;
+        try {
+            for (Future<Boolean> future : pool.invokeAll(tasks))
+                any |= future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("vertex program failed", e.getCause());
+        }
+        return any;
+    }
+
+    private int owner(int vertex) {
+        int w = Arrays.binarySearch(bounds, vertex);
+        if (w < 0) return -w - 2;
+        while (bounds[w + 1] == vertex) // skip empty ranges
+            w++;
+        return w;
+    }
+
+    /**
+     * State of one worker, passed to the program.
+     */
+    public final class Context {
+        final int worker;
+        final Neighbors.Cursor cursor = adj.cursor();
+        final int[][] out_targets = new int[threads][16];
+        final double[][] out_messages = new double[threads][16];
+        final int[] out_sizes = new int[threads];
+        int vertex;
+        boolean sent;
+        double aggregate;
+
+        Context(int worker) {
+            this.worker = worker;
+        }
+
+        public int superstep() {
+            return superstep;
+        }
+
+        public int vertices() {
+            return adj.N;
+        }
+
+        public double value() {
+            return values[vertex];
+        }
+
+        public void value(double value) {
+            values[vertex] = value;
+        }
+
+        /**
+         * @return true if the current vertex received a message
+         */
+        public boolean has_message() {
+            return has_message[vertex];
+        }
+
+        /**
+         * @return the combined message of the current vertex
+         */
+        public double message() {
+            return inbox[vertex];
+        }
+
+        public int degree() {
+            return adj.degree(vertex);
+        }
+
+        /**
+         * @return the neighbors of the current vertex
+         */
+        public Neighbors.Cursor neighbors() {
+            cursor.reset(vertex);
+            return cursor;
+        }
+
+        /**
+         * Sends a message that arrives in the next superstep.
+         *
+         * @param target  the receiving vertex
+         * @param message the message
+         */
+        public void send(int target, double message) {
+            sent = true;
+            if (target >= bounds[worker] && target < bounds[worker + 1]) {
+                if (next_has_message[target])
+                    next_inbox[target] = combiner.applyAsDouble(next_inbox[target], message);
+                else {
+                    next_inbox[target] = message;
+                    next_has_message[target] = true;
+                }
+                return;
+            }
+            int w = owner(target);
+            int size = out_sizes[w];
+            if (size == out_targets[w].length) {
+                out_targets[w] = Arrays.copyOf(out_targets[w], size * 2);
+                out_messages[w] = Arrays.copyOf(out_messages[w], size * 2);
+            }
+            out_targets[w][size] = target;
+            out_messages[w][size] = message;
+            out_sizes[w] = size + 1;
+        }
+
+        /**
+         * Adds to the global sum, which is available in the next superstep from {@link #aggregated()}.
+         */
+        public void aggregate(double value) {
+            aggregate += value;
+        }
+
+        /**
+         * @return the sum aggregated by all vertices in the previous superstep
+         */
+        public double aggregated() {
+            return aggregated;
+        }
+
+        /**
+         * Deactivates the current vertex until it receives a message.
+         */
+        public void vote_to_halt() {
+            active[vertex] = false;
+        }
+
+        boolean compute(Program program) {
+            sent = false;
+            boolean running = false;
+            for (int v = bounds[worker]; v < bounds[worker + 1]; v++) {
+                if (!active[v] && !has_message[v]) continue;
+                active[v] = true;
+                vertex = v;
+                program.compute(this, v);
+                running |= active[v];
+            }
+            for (int v = bounds[worker]; v < bounds[worker + 1]; v++)
+                has_message[v] = false;
+            return running || sent;
+        }
+
+        boolean deliver() {
+            for (var context : contexts) {
+                int size = context.out_sizes[worker];
+                int[] targets = context.out_targets[worker];
+                double[] messages = context.out_messages[worker];
+                for (int i = 0; i < size; i++) {
+                    int t = targets[i];
+                    if (next_has_message[t])
+                        next_inbox[t] = combiner.applyAsDouble(next_inbox[t], messages[i]);
+                    else {
+                        next_inbox[t] = messages[i];
+                        next_has_message[t] = true;
+                    }
+                }
+                context.out_sizes[worker] = 0;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Computes PageRank.
+     * <br/>
+     * rank of vertices without neighbors is spread evenly over all vertices through the aggregator
+     *
+     * @param adj        the graph, Adjacency.of(graph) uses every edge in both directions
+     * @param damping    the damping factor, usually 0.85
+     * @param iterations number of iterations
+     * @param threads    number of worker threads
+     * @return rank of every vertex, the ranks sum up to 1
+     */
+    public static double[] page_rank(Adjacency adj, double damping, int iterations, int threads) {
+        var engine = new Pregel(adj, Double::sum, threads);
+        int n = adj.N;
+        engine.run((context, vertex) -> {
+            if (context.superstep() == 0) {
+                context.value(1.0 / n);
+            } else {
+                double sum = context.has_message() ? context.message() : 0;
+                context.value((1 - damping) / n + damping * (sum + context.aggregated() / n));
+            }
+            if (context.superstep() == iterations) {
+                context.vote_to_halt();
+                return;
+            }
+            int degree = context.degree();
+            if (degree == 0) {
+                context.aggregate(context.value());
+                return;
+            }
+            double share = context.value() / degree;
+            for (var it = context.neighbors(); it.next(); )
+                context.send(it.target(), share);
+        }, iterations + 1);
+        return engine.values;
+    }
+
+    /**
+     * Computes shortest distances by label propagation, a vertex forwards its distance whenever it improves.
+     *
+     * @param adj     the graph
+     * @param start   the start vertex
+     * @param weights non-negative edge weights
+     * @param threads number of worker threads
+     * @return shortest distances, Integer.MAX_VALUE for unreachable vertices
+     */
+    public static int[] shortest_paths(Adjacency adj, int start, int[] weights, int threads) {
+        var engine = new Pregel(adj, Math::min, threads);
+        engine.run((context, vertex) -> {
+            double distance = context.superstep() == 0
+                    ? (vertex == start ? 0 : Double.POSITIVE_INFINITY)
+                    : context.value();
+            boolean improved = vertex == start && context.superstep() == 0;
+            if (context.has_message() && context.message() < distance) {
+                distance = context.message();
+                improved = true;
+            }
+            context.value(distance);
+            if (improved)
+                for (var it = context.neighbors(); it.next(); )
+                    context.send(it.target(), distance + weights[it.edge()]);
+            context.vote_to_halt();
+        }, Integer.MAX_VALUE);
+
+        int[] distances = new int[adj.N];
+        for (int v = 0; v < adj.N; v++)
+            distances[v] = Double.isInfinite(engine.values[v]) ? Integer.MAX_VALUE : (int) engine.values[v];
+        return distances;
+    }
+
+    /*
+     * The main method runs both reference programs with an increasing number of threads
+     * and checks the distances against Dijkstra.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 8_000_000;
+        Graph graph = Benchmark.random_graph(n, m, 42);
+        int[] weights = Benchmark.random_weights(m, 100, 43);
+        Adjacency adj = Adjacency.of(graph);
+
+        int[] expected = new int[n];
+        Arrays.fill(expected, Integer.MAX_VALUE);
+        expected[0] = 0;
+        Dijkstra.run_dial(adj, 0, weights, expected, (vertex, edge) -> {}, Limit.NONE);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads < 2 * cores; threads *= 2) {
+            int t = Math.min(threads, cores);
+            double rank = Benchmark.best_of(3, () -> page_rank(adj, 0.85, 20, t));
+            int[][] distances = new int[1][];
+            double sssp = Benchmark.best_of(3, () -> distances[0] = shortest_paths(adj, 0, weights, t));
+            System.out.printf("%2d threads: page_rank %8.1f ms, shortest_paths %8.1f ms, same as Dijkstra: %b%n",
+                    t, rank, sssp, Arrays.equals(expected, distances[0]));
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.diogonunes.jcolor.Attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.PriorityQueue;
 
@@ -19,6 +18,12 @@ public class Prims {
 
     public Callback callback = null;
 
+    /*
+     * Colors of the default callback, added to the palette once.
+     */
+    static final int VISITED_VERTEX = AttributeTable.color(Attribute.TEXT_COLOR(255, 0, 0));
+    static final int VISITED_EDGE = AttributeTable.color(Attribute.TEXT_COLOR(0, 0, 255));
+
     public Graph graph;
     public int start;
     public int[] weights;
@@ -82,12 +87,27 @@ public class Prims {
         this.weights = weights;
     }
 
+    /*
+     * The Result record is returned by runs with a limit.
+     * tree holds the edges added so far, settled the number of vertices in the tree and frontier the number of
+     * vertices adjacent to the tree but not in it when the run stopped, it is 0 for complete runs.
+     */
+    public record Result(Limit.Status status, List<Integer> tree, int settled, int frontier) {}
+
     public List<Integer> run() throws IOException {
+        return run(Limit.NONE).tree();
+    }
+
+    /*
+     * The run method with a limit stops once the limit's deadline passes or it is cancelled
+     * and returns the part of the tree grown until then.
+     */
+    public Result run(Limit limit) throws IOException {
 
         if (callback == null) {
             callback = (int now, int prev) -> {
-                graph.vertex_colors.put(now, Attribute.TEXT_COLOR(255, 0, 0));
-                graph.edge_colors.put(prev, Attribute.TEXT_COLOR(0, 0, 255));
+                graph.vertex_colors.set(now, VISITED_VERTEX);
+                if (prev != -1) graph.edge_colors.set(prev, VISITED_EDGE);
                 graph.print_graph();
 
                 System.in.read();
@@ -96,73 +116,82 @@ public class Prims {
 
         }
 
-        return run_impl(graph, start, weights);
+        return run_impl(graph, start, weights, limit);
     }
 
     /*
      * The run_impl method executes the Prims algorithm on the graph and returns the minimum spanning tree.
      */
-    private List<Integer> run_impl(Graph graph, int start, int[] weights) throws IOException {
+    private Result run_impl(Graph graph, int start, int[] weights, Limit limit) throws IOException {
+        graph.vertex_colors.clear();
+        graph.edge_colors.clear();
 
+        return run_tree(graph.neighbors(), start, weights, callback, limit);
+    }
 
-        int n = graph.N;
-        boolean[] visited = new boolean[n];
+    /*
+     * The run_tree method grows the tree from the start vertex, always adding the lightest edge leaving it.
+     * It returns the edges of the minimum spanning tree of the component of the start vertex,
+     * or the tree so far if the limit stopped it. It runs on any neighbor lists, also ones without a graph like
+     * a CompressedGraph or a SubgraphView, a null callback is not called.
+     */
+    public static Result run_tree(Neighbors adj, int start, int[] weights, Callback callback, Limit limit) throws IOException {
+        if (callback == null) callback = (vertex, edge) -> {};
+        boolean[] visited = new boolean[adj.vertices()];
         List<Integer> mst = new ArrayList<>();
 
-        record Node(int id, int distance, int edge) implements Comparable<Node> {
+        record Node(int id, int weight, int edge) implements Comparable<Node> {
 
             /*
-             * The compareTo method compares two nodes based on their distances.
-             * The method returns a negative value if this node has a smaller distance than the other node, a positive value if this node has a larger distance than the other node, and zero if the distances are equal.
+             * The compareTo method compares two nodes based on the weights of the edges leading to them.
              */
             @Override
             public int compareTo(Node other) {
-                return Integer.compare(this.distance, other.distance);
+                return Integer.compare(this.weight, other.weight);
             }
         }
 
         PriorityQueue<Node> pq = new PriorityQueue<>();
         pq.offer(new Node(start, 0, -1));
 
-        graph.vertex_colors = new HashMap<>();
-        graph.edge_colors = new HashMap<>();
-
+        Neighbors.Cursor it = adj.cursor();
 
+        int settled = 0, steps = 0;
         while (!pq.isEmpty()) {
+            if (limit.stop(steps++)) {
+                boolean[] counted = new boolean[visited.length];
+                int frontier = 0;
+                for (Node waiting : pq) {
+                    if (!visited[waiting.id] && !counted[waiting.id]) {
+                        counted[waiting.id] = true;
+                        frontier++;
+                    }
+                }
+                return new Result(limit.status(false), mst, settled, frontier);
+            }
             Node node = pq.poll();
             int u = node.id;
-            int distU = node.distance;
 
             if (visited[u]){
                 continue;
             }
             visited[u] = true;
+            settled++;
 
-            if (node.edge == -1)
+            if (node.edge != -1)
                 mst.add(node.edge);
 
-            for (int i = 0; i < graph.edges.length; i++) {
-                if (graph.edges[i][0] != u && graph.edges[i][1] != u) continue;
-                int v = -1;
-                if (graph.edges[i][0] == u) {
-                    v = graph.edges[i][1];
-                }
-                if (graph.edges[i][1] == u) {
-                    v = graph.edges[i][0];
-                }
-                ;
-
-                int weightUV = weights[i];
-                int distanceThroughU = distU + weightUV;
+            for (it.reset(u); it.next(); ) {
+                int v = it.target();
                 if(!visited[v]){
-                    pq.offer(new Node(v, distanceThroughU, i));
+                    pq.offer(new Node(v, weights[it.edge()], it.edge()));
                 }
 
             }
             callback.call(u, node.edge);
 
         }
-        return mst;
+        return new Result(Limit.Status.complete, mst, settled, 0);
     }
 
     /*
@@ -0,0 +1,444 @@
+package com.septim.graphlib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line driver that loads a graph once and answers a stream of queries with a pool of workers.
+ * <br/>
+ * the graph file holds "N E" and then E lines "u v w", '#' starts a comment. Queries are read line by line from
+ * stdin or a file:
+ * <br/>
+ * sp s t - length and vertices of a shortest path from s to t
+ * <br/>
+ * dist s t - length of a shortest path from s to t
+ * <br/>
+ * mst s - total weight and number of edges of the minimum spanning tree of the component of s
+ * <br/>
+ * answers are written as soon as they are ready, so they carry the number of their query line. Text answers are
+ * "line sp s t length v0 .. vk", "line dist s t length", "line mst s weight edges" and "line error message",
+ * with length -1 if t is unreachable. Binary answers are big endian: int line, byte kind (0 sp, 1 dist, 2 mst,
+ * 3 error), then for sp/dist int s, int t, long length and for sp int k and k vertices, for mst int s, long weight,
+ * int edges and for error a UTF string. Throughput and latency are reported to stderr at the end.
+ */
+public class QueryDriver {
+
+    public enum Format {text, binary}
+
+    static final int SP = 0, DIST = 1, MST = 2, ERROR = 3;
+
+    record Query(int line, String text) {}
+
+    private static final Query END = new Query(-1, null);
+
+    public final Graph graph;
+    public final int[] weights;
+    public final Neighbors adj;
+    private final Neighbors tree_adj; // spanning trees always use edges in both directions
+
+    private final Object output_lock = new Object();
+    private DataOutputStream out;
+    private Format format;
+
+    /**
+     * Creates a driver for a loaded graph.
+     *
+     * @param graph    the graph
+     * @param weights  non-negative edge weights
+     * @param directed true if edge {a, b} only leads from a to b in sp and dist queries
+     */
+    public QueryDriver(Graph graph, int[] weights, boolean directed) {
+        for (int w : weights)
+            if (w < 0) throw new IllegalArgumentException("negative weight " + w);
+        this.graph = graph;
+        this.weights = weights;
+        this.tree_adj = Adjacency.of(graph);
+        this.adj = directed ? Adjacency.directed(graph) : tree_adj;
+    }
+
+    /**
+     * Reads a graph file.
+     *
+     * @param in      the file contents
+     * @param weights receives the edge weights in weights[0]
+     * @return the graph
+     */
+    public static Graph read_graph(InputStream in, int[][] weights) throws IOException {
+        var tokens = new Tokens(in);
+        int n = tokens.next_int(), m = tokens.next_int();
+        var builder = new Graph.Builder(n, m);
+        for (int i = 0; i < m; i++) {
+            int a = tokens.next_int(), b = tokens.next_int(), w = tokens.next_int();
+            if (a < 0 || a >= n || b < 0 || b >= n)
+                throw new IllegalArgumentException("edge " + i + " has a vertex outside 0.." + (n - 1));
+            builder.addEdge(a, b, w);
+        }
+        weights[0] = builder.weights();
+        return builder.build();
+    }
+
+    /**
+     * Whitespace separated ints, '#' comments up to the end of the line.
+     */
+    private static final class Tokens {
+        final InputStream in;
+
+        Tokens(InputStream in) {
+            this.in = new BufferedInputStream(in, 1 << 16);
+        }
+
+        int next_int() throws IOException {
+            int c = in.read();
+            while (true) {
+                if (c == '#') {
+                    while (c != '\n' && c != -1) c = in.read();
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    c = in.read();
+                } else {
+                    break;
+                }
+            }
+            if (c == -1) throw new IllegalArgumentException("unexpected end of graph file");
+            boolean negative = c == '-';
+            if (negative) c = in.read();
+            if (c < '0' || c > '9') throw new IllegalArgumentException("expected a number, found '" + (char) c + "'");
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE + 1L) throw new IllegalArgumentException("number out of range");
+                c = in.read();
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw new IllegalArgumentException("number out of range");
+            return (int) value;
+        }
+    }
+
+    /**
+     * Answers all queries of a stream, then reports statistics.
+     *
+     * @param queries the query lines
+     * @param output  where the answers go
+     * @param format  the answer format
+     * @param threads number of workers
+     */
+    public void run(InputStream queries, OutputStream output, Format format, int threads) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        this.format = format;
+        BlockingQueue<Query> queue = new ArrayBlockingQueue<>(4 * 1024);
+        List<Worker> workers = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        try {
+            for (int t = 0; t < threads; t++) {
+                var worker = new Worker(queue);
+                workers.add(worker);
+                futures.add(pool.submit(() -> {
+                    worker.serve();
+                    return null;
+                }));
+            }
+            var reader = new BufferedReader(new InputStreamReader(queries, StandardCharsets.UTF_8), 1 << 16);
+            int line = 0;
+            for (String text; (text = reader.readLine()) != null; ) {
+                line++;
+                text = text.strip();
+                if (text.isEmpty() || text.startsWith("#")) continue;
+                put(queue, new Query(line, text), futures);
+            }
+            for (int t = 0; t < threads; t++)
+                put(queue, END, futures);
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IllegalStateException("query worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            synchronized (output_lock) {
+                out.flush();
+            }
+        }
+        report(workers, (System.nanoTime() - begin) / 1e9);
+    }
+
+    /*
+     * The put method waits for room in the queue, but gives up when a worker failed and will not take any more.
+     */
+    private static void put(BlockingQueue<Query> queue, Query query, List<Future<?>> workers)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(query, 100, TimeUnit.MILLISECONDS))
+            for (Future<?> worker : workers)
+                if (worker.isDone()) worker.get();
+    }
+
+    private static void report(List<Worker> workers, double seconds) {
+        int total = 0;
+        int[] kinds = new int[4];
+        for (Worker worker : workers) {
+            total += worker.count;
+            for (int k = 0; k < kinds.length; k++) kinds[k] += worker.kinds[k];
+        }
+        long[] latencies = new long[total];
+        int at = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, at, worker.count);
+            at += worker.count;
+        }
+        Arrays.sort(latencies);
+        System.err.printf("%d queries (sp %d, dist %d, mst %d, errors %d) in %.2f s, %.0f queries/s%n",
+                total, kinds[SP], kinds[DIST], kinds[MST], kinds[ERROR], seconds, total / Math.max(seconds, 1e-9));
+        if (total > 0)
+            System.err.printf("latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                    percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                    latencies[total - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+
+    /**
+     * A worker thread with its own search state, reset through the list of touched vertices.
+     */
+    private final class Worker {
+        final BlockingQueue<Query> queue;
+        final Neighbors.Cursor it = adj.cursor();
+        final int[] distances, via;
+        final RadixHeap heap = new RadixHeap();
+        int[] touched = new int[64];
+        int touched_size;
+
+        long[] latencies = new long[1024];
+        final int[] kinds = new int[4];
+        int count;
+
+        Worker(BlockingQueue<Query> queue) {
+            this.queue = queue;
+            distances = new int[graph.N];
+            via = new int[graph.N];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+        }
+
+        void serve() throws IOException, InterruptedException {
+            for (Query query = queue.take(); query != END; query = queue.take()) {
+                long begin = System.nanoTime();
+                int kind = answer(query);
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = System.nanoTime() - begin;
+                kinds[kind]++;
+                if (queue.isEmpty()) {
+                    synchronized (output_lock) {
+                        out.flush();
+                    }
+                }
+            }
+        }
+
+        int answer(Query query) throws IOException {
+            String[] parts = query.text().split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "sp", "dist" -> {
+                        if (parts.length != 3) throw new IllegalArgumentException("usage: " + parts[0] + " s t");
+                        int s = vertex(parts[1]), t = vertex(parts[2]);
+                        int d = search(s, t);
+                        boolean path = parts[0].equals("sp");
+                        write_path(query.line(), path ? SP : DIST, s, t, d, path && d != Integer.MAX_VALUE ? path(s, t) : null);
+                        return path ? SP : DIST;
+                    }
+                    case "mst" -> {
+                        if (parts.length != 2) throw new IllegalArgumentException("usage: mst s");
+                        int s = vertex(parts[1]);
+                        List<Integer> edges = Prims.run_tree(tree_adj, s, weights, (vertex, edge) -> {}, Limit.NONE).tree();
+                        long total = 0;
+                        for (int e : edges) total += weights[e];
+                        write_tree(query.line(), s, total, edges.size());
+                        return MST;
+                    }
+                    default -> throw new IllegalArgumentException("unknown query " + parts[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                write_error(query.line(), e.getMessage());
+                return ERROR;
+            }
+        }
+
+        int vertex(String text) {
+            int v;
+            try {
+                v = Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a vertex: " + text);
+            }
+            if (v < 0 || v >= graph.N) throw new IllegalArgumentException("no vertex " + v);
+            return v;
+        }
+
+        /*
+         * The search method runs Dijkstra from s with a radix heap until t is settled.
+         */
+        int search(int s, int t) {
+            for (int i = 0; i < touched_size; i++)
+                distances[touched[i]] = Integer.MAX_VALUE;
+            touched_size = 0;
+            heap.clear();
+            distances[s] = 0;
+            via[s] = -1;
+            touch(s);
+            heap.push(0, s);
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                int d = heap.key();
+                if (d != distances[u]) continue; // stale entry
+                if (u == t) return d;
+                for (it.reset(u); it.next(); ) {
+                    int v = it.target();
+                    int through = d + weights[it.edge()];
+                    if (through >= 0 && through < distances[v]) {
+                        if (distances[v] == Integer.MAX_VALUE) touch(v);
+                        distances[v] = through;
+                        via[v] = u;
+                        heap.push(through, v);
+                    }
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        void touch(int v) {
+            if (touched_size == touched.length) touched = Arrays.copyOf(touched, touched_size * 2);
+            touched[touched_size++] = v;
+        }
+
+        int[] path(int s, int t) {
+            int hops = 0;
+            for (int v = t; v != s; v = via[v]) hops++;
+            int[] path = new int[hops + 1];
+            for (int v = t, i = hops; i > 0; i--) {
+                path[i] = v;
+                v = via[v];
+            }
+            path[0] = s;
+            return path;
+        }
+    }
+
+    private void write_path(int line, int kind, int s, int t, int distance, int[] path) throws IOException {
+        long length = distance == Integer.MAX_VALUE ? -1 : distance;
+        synchronized (output_lock) {
+            if (format == Format.binary) {
+                out.writeInt(line);
+                out.writeByte(kind);
+                out.writeInt(s);
+                out.writeInt(t);
+                out.writeLong(length);
+                if (kind == SP) {
+                    out.writeInt(path == null ? 0 : path.length);
+                    if (path != null) for (int v : path) out.writeInt(v);
+                }
+                return;
+            }
+            var text = new StringBuilder().append(line).append(kind == SP ? " sp " : " dist ")
+                    .append(s).append(' ').append(t).append(' ').append(length);
+            if (path != null) for (int v : path) text.append(' ').append(v);
+            out.write(text.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void write_tree(int line, int s, long total, int edges) throws IOException {
+        synchronized (output_lock) {
+            if (format == Format.binary) {
+                out.writeInt(line);
+                out.writeByte(MST);
+                out.writeInt(s);
+                out.writeLong(total);
+                out.writeInt(edges);
+                return;
+            }
+            out.write((line + " mst " + s + " " + total + " " + edges + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void write_error(int line, String message) throws IOException {
+        synchronized (output_lock) {
+            if (format == Format.binary) {
+                out.writeInt(line);
+                out.writeByte(ERROR);
+                out.writeUTF(message);
+                return;
+            }
+            out.write((line + " error " + message + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /*
+     * The main method parses the command line:
+     * <graph file> [--queries file] [--threads n] [--format text|binary] [--directed]
+     */
+    public static void main(String[] args) throws IOException {
+        Path graph_file = null, query_file = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Format format = Format.text;
+        boolean directed = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--queries" -> query_file = Path.of(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--format" -> format = Format.valueOf(args[++i]);
+                    case "--directed" -> directed = true;
+                    default -> {
+                        if (args[i].startsWith("--") || graph_file != null)
+                            throw new IllegalArgumentException("unexpected argument " + args[i]);
+                        graph_file = Path.of(args[i]);
+                    }
+                }
+            }
+            if (graph_file == null) throw new IllegalArgumentException("missing graph file");
+            if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println("usage: <graph file> [--queries file] [--threads n] [--format text|binary] [--directed]");
+            System.exit(2);
+            return;
+        }
+
+        long begin = System.nanoTime();
+        int[][] weights = new int[1][];
+        Graph graph;
+        try (InputStream in = Files.newInputStream(graph_file)) {
+            graph = read_graph(in, weights);
+        }
+        var driver = new QueryDriver(graph, weights[0], directed);
+        System.err.printf("loaded %d vertices and %d edges in %.1f ms%n",
+                graph.N, graph.E, (System.nanoTime() - begin) / 1e6);
+
+        try (InputStream queries = query_file == null ? System.in : Files.newInputStream(query_file)) {
+            driver.run(queries, System.out, format, threads);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Monotone priority queue of int keys with int values, as used by {@link Dijkstra}.
+ * <br/>
+ * keys must be non-negative and never smaller than the last popped key. Bucket i holds the keys whose
+ * highest bit differing from the last popped key is bit i - 1, so every key is moved at most 32 times
+ * and the buckets are plain primitive arrays.
+ */
+public class RadixHeap {
+    private static final int BUCKETS = 33;
+
+    private final int[][] keys = new int[BUCKETS][];
+    private final int[][] values = new int[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+    private int last = 0; // last popped key
+    private int size = 0;
+
+    public RadixHeap() {
+        for (int i = 0; i < BUCKETS; i++) {
+            keys[i] = new int[8];
+            values[i] = new int[8];
+        }
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param key   the key, at least the last popped key
+     * @param value the value
+     */
+    public void push(int key, int value) {
+        assert key >= last : "key " + key + " is smaller than the last popped key " + last;
+        append(bucket(key), key, value);
+        size++;
+    }
+
+    /**
+     * Removes a value with the smallest key, the key is then available from {@link #key()}.
+     *
+     * @return the value
+     */
+    public int pop() {
+        assert size > 0 : "pop from empty heap";
+        if (sizes[0] == 0) {
+            int i = 1;
+            while (sizes[i] == 0)
+                i++;
+
+            int[] k = keys[i], v = values[i];
+            int n = sizes[i];
+            int min = k[0];
+            for (int j = 1; j < n; j++)
+                min = Math.min(min, k[j]);
+
+            // all keys of bucket i share the bits above i - 1 with min, so they move to lower buckets
+            last = min;
+            sizes[i] = 0;
+            for (int j = 0; j < n; j++)
+                append(bucket(k[j]), k[j], v[j]);
+        }
+        size--;
+        return values[0][--sizes[0]];
+    }
+
+    /**
+     * @return the key of the last popped value
+     */
+    public int key() {
+        return last;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values and allows keys to start from zero again.
+     */
+    public void clear() {
+        Arrays.fill(sizes, 0);
+        last = 0;
+        size = 0;
+    }
+
+    private int bucket(int key) {
+        return key == last ? 0 : 32 - Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void append(int bucket, int key, int value) {
+        int n = sizes[bucket];
+        if (n == keys[bucket].length) {
+            keys[bucket] = Arrays.copyOf(keys[bucket], n * 2);
+            values[bucket] = Arrays.copyOf(values[bucket], n * 2);
+        }
+        keys[bucket][n] = key;
+        values[bucket][n] = value;
+        sizes[bucket] = n + 1;
+    }
+
+    /*
+     * The main method benchmarks the radix heap against the binary heap of Dijkstra on a random graph.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 4_000_000;
+        Graph graph = Benchmark.random_graph(n, m, 42);
+        int[] weights = Benchmark.random_weights(m, 1 << 24, 43);
+        Adjacency adj = Adjacency.of(graph);
+        Dijkstra.Callback nop = (vertex, edge) -> {};
+
+        System.out.println("Dijkstra on " + n + " vertices, " + m + " edges, weights < 2^24");
+        for (var mode : new Dijkstra.Mode[]{Dijkstra.Mode.heap, Dijkstra.Mode.radix}) {
+            double best = Benchmark.best_of(5, () -> {
+                int[] distances = new int[n];
+                Arrays.fill(distances, Integer.MAX_VALUE);
+                distances[0] = 0;
+                if (mode == Dijkstra.Mode.heap)
+                    Dijkstra.run_heap(adj, 0, weights, distances, nop, Limit.NONE);
+                else
+                    Dijkstra.run_radix(adj, 0, weights, distances, nop, Limit.NONE);
+            });
+            System.out.printf("%-6s %8.1f ms%n", mode, best);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Relabels the vertices of a graph so that neighbors get nearby ids.
+ * <br/>
+ * the distance and visited arrays of the algorithms are indexed by vertex, with nearby ids a search touches
+ * fewer cache lines. The permuted copy keeps the edge order, so edge indices and weights are shared with the
+ * original graph and only vertex ids have to be mapped back.
+ */
+public class Reordering {
+
+    /**
+     * How the new ids are chosen.
+     * <br/>
+     * cuthill_mckee - reverse Cuthill-McKee, BFS from a low degree vertex visiting neighbors by increasing degree, reversed
+     * <br/>
+     * degree - by decreasing degree, so the frequently visited hubs share cache lines
+     * <br/>
+     * bfs - in BFS order
+     */
+    public enum Strategy {cuthill_mckee, degree, bfs}
+
+    public final Graph graph; // the permuted copy, it is not meant for printing
+    public final int[] new_id; // new id of every original vertex
+    public final int[] old_id; // original id of every new vertex
+
+    private Reordering(Graph graph, int[] new_id, int[] old_id) {
+        this.graph = graph;
+        this.new_id = new_id;
+        this.old_id = old_id;
+    }
+
+    /**
+     * Builds the permuted copy of a graph.
+     *
+     * @param graph    the graph
+     * @param strategy how the new ids are chosen
+     * @return the reordering
+     */
+    public static Reordering of(Graph graph, Strategy strategy) {
+        Adjacency adj = Adjacency.of(graph);
+        int[] order = switch (strategy) {
+            case cuthill_mckee -> reverse_cuthill_mckee(adj);
+            case degree -> degree_order(adj);
+            case bfs -> bfs_order(adj);
+        };
+        int[] new_id = new int[order.length];
+        for (int i = 0; i < order.length; i++)
+            new_id[order[i]] = i;
+        return new Reordering(permute(graph, new_id), new_id, order);
+    }
+
+    /**
+     * Runs Dijkstra on the permuted graph.
+     *
+     * @param start    the start vertex, original id
+     * @param weights  the edge weights
+     * @param callback called with original vertex ids, null for no callback
+     * @return the shortest distances, indexed by original id
+     */
+    public int[] dijkstra(int start, int[] weights, Dijkstra.Callback callback) throws IOException {
+        Dijkstra.Callback mapped = callback == null ? null : (vertex, edge) -> callback.call(old_id[vertex], edge);
+        return to_original(Dijkstra.run_search(graph.neighbors(), new_id[start], weights, Dijkstra.Mode.auto, mapped, Limit.NONE).distances());
+    }
+
+    /**
+     * Runs Prims on the permuted graph.
+     *
+     * @param start    the start vertex, original id
+     * @param weights  the edge weights
+     * @param callback called with original vertex ids, null for no callback
+     * @return the result of Prims, edge indices are the same in both graphs
+     */
+    public List<Integer> prims(int start, int[] weights, Prims.Callback callback) throws IOException {
+        Prims.Callback mapped = callback == null ? null : (vertex, edge) -> callback.call(old_id[vertex], edge);
+        return Prims.run_tree(graph.neighbors(), new_id[start], weights, mapped, Limit.NONE).tree();
+    }
+
+    /**
+     * Maps values indexed by new ids to original ids.
+     *
+     * @param values values of the permuted graph
+     * @return values of the original graph
+     */
+    public int[] to_original(int[] values) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++)
+            result[old_id[i]] = values[i];
+        return result;
+    }
+
+    /**
+     * Creates a copy of a graph with relabeled vertices and the same edge order.
+     *
+     * @param graph  the graph
+     * @param new_id new id of every vertex
+     * @return the copy
+     */
+    public static Graph permute(Graph graph, int[] new_id) {
+        Graph permuted = new Graph();
+        permuted.N = graph.N;
+        permuted.E = graph.E;
+        permuted.src = new int[graph.E];
+        permuted.dst = new int[graph.E];
+        for (int i = 0; i < graph.E; i++) {
+            permuted.src[i] = new_id[graph.src[i]];
+            permuted.dst[i] = new_id[graph.dst[i]];
+        }
+        return permuted;
+    }
+
+    /*
+     * The reverse_cuthill_mckee method runs a BFS from the lowest degree unvisited vertex of every component,
+     * enqueueing neighbors by increasing degree, and reverses the resulting order.
+     */
+    static int[] reverse_cuthill_mckee(Adjacency adj) {
+        int n = adj.N;
+        int[] by_degree = degree_order(adj);
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        long[] buffer = new long[16];
+        int last = 0;
+
+        for (int i = n - 1; i >= 0; i--) { // lowest degree first
+            int root = by_degree[i];
+            if (visited[root]) continue;
+            visited[root] = true;
+            int first = last;
+            order[last++] = root;
+            while (first < last) {
+                int u = order[first++];
+                int count = 0;
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                    int v = adj.targets[k];
+                    if (visited[v]) continue;
+                    visited[v] = true;
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, count * 2);
+                    buffer[count++] = ((long) adj.degree(v) << 32) | v;
+                }
+                Arrays.sort(buffer, 0, count);
+                for (int j = 0; j < count; j++)
+                    order[last++] = (int) buffer[j];
+            }
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    /*
+     * The degree_order method sorts vertices by decreasing degree with a counting sort, ties keep their id order.
+     */
+    static int[] degree_order(Adjacency adj) {
+        int n = adj.N;
+        int max = 0;
+        for (int u = 0; u < n; u++)
+            max = Math.max(max, adj.degree(u));
+        int[] start = new int[max + 2];
+        for (int u = 0; u < n; u++)
+            start[max - adj.degree(u) + 1]++;
+        for (int d = 0; d <= max; d++)
+            start[d + 1] += start[d];
+        int[] order = new int[n];
+        for (int u = 0; u < n; u++)
+            order[start[max - adj.degree(u)]++] = u;
+        return order;
+    }
+
+    /*
+     * The bfs_order method numbers vertices in BFS order, starting a new BFS from the smallest unvisited vertex.
+     */
+    static int[] bfs_order(Adjacency adj) {
+        int n = adj.N;
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        int last = 0;
+        for (int root = 0; root < n; root++) {
+            if (visited[root]) continue;
+            visited[root] = true;
+            int first = last;
+            order[last++] = root;
+            while (first < last) {
+                int u = order[first++];
+                for (int k = adj.offsets[u]; k < adj.offsets[u + 1]; k++) {
+                    if (!visited[adj.targets[k]]) {
+                        visited[adj.targets[k]] = true;
+                        order[last++] = adj.targets[k];
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    /*
+     * The main method scatters the vertex ids of a graph with local edges, like ids assigned in arbitrary order,
+     * and compares the speed of Dijkstra before and after each reordering.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 8_000_000;
+        int[] scatter = new SplittableRandom(7).ints(n, 0, Integer.MAX_VALUE).toArray();
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) boxed[i] = i;
+        Arrays.sort(boxed, (a, b) -> Integer.compare(scatter[a], scatter[b]));
+        int[] random_id = new int[n];
+        for (int i = 0; i < n; i++) random_id[boxed[i]] = i;
+
+        Graph graph = permute(Benchmark.local_graph(n, m, 16, 42), random_id);
+        int[] weights = Benchmark.random_weights(m, 1 << 12, 43); // paths have many hops, keep the sums in range
+
+        int[][] expected = new int[1][];
+        double base = time_dijkstra(graph, 0, weights, expected);
+        System.out.printf("%-14s %8.1f ms%n", "original", base);
+        for (var strategy : Strategy.values()) {
+            long begin = System.nanoTime();
+            Reordering reordering = Reordering.of(graph, strategy);
+            double build = (System.nanoTime() - begin) / 1e6;
+            int[][] distances = new int[1][];
+            double time = time_dijkstra(reordering.graph, reordering.new_id[0], weights, distances);
+            boolean same = Arrays.equals(expected[0], reordering.to_original(distances[0]));
+            System.out.printf("%-14s %8.1f ms, speedup %.2fx, reordering took %.1f ms, same distances: %b%n",
+                    strategy, time, base / time, build, same);
+        }
+    }
+
+    private static double time_dijkstra(Graph graph, int start, int[] weights, int[][] result) throws IOException {
+        Adjacency adj = Adjacency.of(graph);
+        return Benchmark.best_of(5, () -> {
+            int[] distances = new int[graph.N];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            distances[start] = 0;
+            Dijkstra.run_radix(adj, start, weights, distances, (vertex, edge) -> {}, Limit.NONE);
+            result[0] = distances;
+        });
+    }
+}
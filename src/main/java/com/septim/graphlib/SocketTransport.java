@@ -0,0 +1,136 @@
+package com.septim.graphlib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+/**
+ * Transport over a TCP connection, frames are a length followed by the ints, in little endian order.
+ * Ints are copied through a direct buffer in blocks, so large frames are not converted one int at a time.
+ * With a timeout the channel is non-blocking and waits in a selector, since blocking channel reads ignore
+ * SO_TIMEOUT, a peer that stops sending or reading then fails the call with a SocketTimeoutException.
+ */
+public class SocketTransport implements Transport {
+    private static final int BUFFER = 1 << 16;
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private final Selector selector; // null without a timeout
+    private final SelectionKey key;
+    private final long timeout_millis;
+
+    public SocketTransport(SocketChannel channel) throws IOException {
+        this(channel, null);
+    }
+
+    /**
+     * @param channel the connected channel
+     * @param timeout longest wait for the peer in a single send or receive, null to wait forever
+     */
+    public SocketTransport(SocketChannel channel, Duration timeout) throws IOException {
+        this.channel = channel;
+        channel.socket().setTcpNoDelay(true);
+        in.limit(0);
+        if (timeout != null) {
+            if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout must be positive");
+            timeout_millis = Math.max(1, timeout.toMillis());
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            key = channel.register(selector, 0);
+        } else {
+            timeout_millis = 0;
+            selector = null;
+            key = null;
+        }
+    }
+
+    /**
+     * Connects to a coordinator.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the transport
+     */
+    public static SocketTransport connect(String host, int port) throws IOException {
+        return new SocketTransport(SocketChannel.open(new InetSocketAddress(host, port)));
+    }
+
+    @Override
+    public void send(int[] frame, int length) throws IOException {
+        out.clear();
+        out.putInt(length);
+        for (int i = 0; i < length; ) {
+            int count = Math.min(length - i, out.remaining() / Integer.BYTES);
+            out.asIntBuffer().put(frame, i, count);
+            out.position(out.position() + count * Integer.BYTES);
+            i += count;
+            if (i < length) flush();
+        }
+        flush();
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining())
+            if (channel.write(out) == 0 && selector != null) await(SelectionKey.OP_WRITE);
+        out.clear();
+    }
+
+    @Override
+    public int[] receive() throws IOException {
+        fill(Integer.BYTES);
+        int length = in.getInt();
+        int[] frame = new int[length];
+        for (int i = 0; i < length; ) {
+            fill(Integer.BYTES);
+            int count = Math.min(length - i, in.remaining() / Integer.BYTES);
+            in.asIntBuffer().get(frame, i, count);
+            in.position(in.position() + count * Integer.BYTES);
+            i += count;
+        }
+        return frame;
+    }
+
+    /*
+     * The fill method reads until at least the given number of bytes is buffered.
+     */
+    private void fill(int bytes) throws IOException {
+        if (in.remaining() >= bytes) return;
+        in.compact();
+        while (in.position() < bytes) {
+            int read = channel.read(in);
+            if (read < 0)
+                throw new EOFException("connection closed");
+            if (read == 0 && selector != null) await(SelectionKey.OP_READ);
+        }
+        in.flip();
+    }
+
+    /*
+     * The await method waits until the channel is ready for the operation, at most for the timeout.
+     */
+    private void await(int operation) throws IOException {
+        key.interestOps(operation);
+        int ready = selector.select(timeout_millis);
+        selector.selectedKeys().clear();
+        if (ready == 0)
+            throw new SocketTimeoutException("peer did not respond within " + timeout_millis + " ms");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (selector != null) selector.close();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.septim.graphlib;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes the steps of an algorithm run to {@link Flow.Subscriber}s.
+ * <br/>
+ * Implements both {@link Dijkstra.Callback} and {@link Prims.Callback}, so it is installed with
+ * {@code dijkstra.callback = publisher}. Every subscriber gets its own bounded buffer and delivery thread,
+ * therefore a slow renderer or logger only affects its own buffer and never the search loop
+ * (unless {@link Backpressure#block} is chosen).
+ */
+public class StepPublisher implements Flow.Publisher<StepPublisher.Step>, Dijkstra.Callback, Prims.Callback, AutoCloseable {
+
+    /**
+     * One step of the algorithm.
+     *
+     * @param index  sequence number of the step, starting at 0
+     * @param vertex the vertex that was visited
+     * @param edge   the edge it was reached by, -1 for the start vertex
+     */
+    public record Step(long index, int vertex, int edge) {}
+
+    /**
+     * What happens when a subscriber's buffer is full.
+     * <br/>
+     * block - the algorithm waits until the subscriber catches up
+     * <br/>
+     * drop_oldest - the oldest buffered step is discarded
+     * <br/>
+     * sample - only every n-th step is published, the oldest one is discarded when the buffer is still full
+     */
+    public enum Backpressure {block, drop_oldest, sample}
+
+    public final int capacity;
+    public final Backpressure backpressure;
+    public final int sample_every;
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private long steps = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a publisher.
+     *
+     * @param capacity     the buffer size of every subscriber
+     * @param backpressure what to do with full buffers
+     * @param sample_every publish only every n-th step, used only with {@link Backpressure#sample}
+     */
+    public StepPublisher(int capacity, Backpressure backpressure, int sample_every) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        if (sample_every <= 0) throw new IllegalArgumentException("sample_every must be positive");
+        this.capacity = capacity;
+        this.backpressure = backpressure;
+        this.sample_every = backpressure == Backpressure.sample ? sample_every : 1;
+    }
+
+    public StepPublisher(int capacity, Backpressure backpressure) {
+        this(capacity, backpressure, 1);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Step> subscriber) {
+        var subscription = new Subscription(subscriber);
+        subscriptions.add(subscription);
+        if (closed)
+            subscription.complete();
+        var thread = new Thread(subscription, "step-subscriber-" + subscriptions.size());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called by the algorithm for every visited vertex.
+     */
+    @Override
+    public void call(int vertex, int edge) {
+        publish(vertex, edge);
+    }
+
+    /**
+     * Publishes a step to all subscribers.
+     *
+     * @param vertex the visited vertex
+     * @param edge   the edge the vertex was reached by
+     */
+    public void publish(int vertex, int edge) {
+        long index = steps++;
+        if (closed || index % sample_every != 0) return;
+        var step = new Step(index, vertex, edge);
+        for (var subscription : subscriptions)
+            subscription.offer(step);
+    }
+
+    /**
+     * @return number of steps discarded because of full buffers, summed over all subscribers
+     */
+    public long dropped() {
+        long dropped = 0;
+        for (var subscription : subscriptions)
+            dropped += subscription.dropped;
+        return dropped;
+    }
+
+    /**
+     * Completes all subscribers once they have received the buffered steps.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var subscription : subscriptions)
+            subscription.complete();
+    }
+
+    private final class Subscription implements Flow.Subscription, Runnable {
+        final Flow.Subscriber<? super Step> subscriber;
+        final Step[] ring = new Step[capacity];
+        int head = 0, size = 0;
+        long demand = 0;
+        volatile long dropped = 0;
+        boolean cancelled = false, completed = false;
+        Throwable error = null;
+
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition not_full = lock.newCondition();
+        final Condition ready = lock.newCondition();
+
+        Subscription(Flow.Subscriber<? super Step> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Buffers a step, applying the backpressure policy when the buffer is full.
+         *
+         * @param step the step
+         */
+        void offer(Step step) {
+            lock.lock();
+            try {
+                while (size == ring.length && !cancelled) {
+                    if (backpressure == Backpressure.block) {
+                        try {
+                            not_full.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    } else {
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        size--;
+                        dropped++;
+                    }
+                }
+                if (cancelled) return;
+                ring[(head + size) % ring.length] = step;
+                size++;
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void complete() {
+            lock.lock();
+            try {
+                completed = true;
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("non-positive request " + n);
+                } else {
+                    demand += n;
+                    if (demand < 0) demand = Long.MAX_VALUE; // overflow means unbounded
+                }
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                ready.signal();
+                not_full.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Delivery loop, runs on the subscriber's own thread.
+         */
+        @Override
+        public void run() {
+            try {
+                subscriber.onSubscribe(this);
+            } catch (Throwable t) {
+                cancel();
+                subscriber.onError(t);
+                return;
+            }
+            while (true) {
+                Step step = null;
+                Throwable failure = null;
+                lock.lock();
+                try {
+                    while (!cancelled && error == null && !(size > 0 && demand > 0) && !(completed && size == 0))
+                        ready.awaitUninterruptibly();
+                    if (cancelled) return;
+                    if (error != null) {
+                        failure = error;
+                        cancelled = true;
+                        not_full.signalAll();
+                    } else if (size > 0) {
+                        step = ring[head];
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        size--;
+                        demand--;
+                        not_full.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (failure != null) {
+                    subscriptions.remove(this);
+                    subscriber.onError(failure);
+                    return;
+                }
+                if (step == null) {
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(step);
+                } catch (Throwable t) {
+                    cancel();
+                    subscriber.onError(t);
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * The main method runs Dijkstra with default values and logs its steps on a subscriber thread,
+     * then waits for the subscriber to receive the completion.
+     */
+    public static void main(String[] args) throws Exception {
+        Dijkstra dijkstra = new Dijkstra();
+        var done = new CountDownLatch(1);
+        try (var publisher = new StepPublisher(16, Backpressure.drop_oldest)) {
+            publisher.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Step step) {
+                    System.out.println("step " + step.index() + ": vertex " + step.vertex() + " via edge " + step.edge());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                    done.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    System.out.println("done");
+                    done.countDown();
+                }
+            });
+            dijkstra.callback = publisher;
+            dijkstra.run();
+        }
+        done.await();
+    }
+}
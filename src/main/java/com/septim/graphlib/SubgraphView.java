@@ -0,0 +1,149 @@
+package com.septim.graphlib;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Subgraph of the edges and vertices in two {@link Mask}s, without copying the graph.
+ * <br/>
+ * the view filters the neighbor lists of the graph while they are walked, skipping masked out edges and neighbors,
+ * a masked out vertex has no neighbors. Edge ids stay the same, so the weights of the whole graph are used as they are.
+ * The view is a source of {@link Neighbors} only, not a {@link Graph}, so algorithms that read the edges of a graph
+ * cannot be handed a view and silently see the masked out edges. {@link Dijkstra#run_search} and
+ * {@link Prims#run_tree} run on it directly, vertices outside the view stay unreached.
+ */
+public class SubgraphView implements Neighbors {
+    public final Graph graph;
+    public final Mask edge_mask, vertex_mask;
+    private final Neighbors base;
+
+    private SubgraphView(Graph graph, Neighbors base, Mask edge_mask, Mask vertex_mask) {
+        if (edge_mask.size != graph.E) throw new IllegalArgumentException("edge mask needs " + graph.E + " ids");
+        if (vertex_mask.size != graph.N) throw new IllegalArgumentException("vertex mask needs " + graph.N + " ids");
+        this.graph = graph;
+        this.base = base;
+        this.edge_mask = edge_mask;
+        this.vertex_mask = vertex_mask;
+    }
+
+    /**
+     * Creates a view, building the neighbor lists of the graph once.
+     *
+     * @param graph       the graph
+     * @param edge_mask   the edges in the view, null for all
+     * @param vertex_mask the vertices in the view, null for all
+     * @return the view
+     */
+    public static SubgraphView of(Graph graph, Mask edge_mask, Mask vertex_mask) {
+        return new SubgraphView(graph, graph.neighbors(),
+                edge_mask != null ? edge_mask : Mask.all(graph.E),
+                vertex_mask != null ? vertex_mask : Mask.all(graph.N));
+    }
+
+    /**
+     * Narrows the view, sharing its graph and neighbor lists.
+     *
+     * @param edge_mask   edges to keep, null for all
+     * @param vertex_mask vertices to keep, null for all
+     * @return the view of the edges and vertices in both this view and the masks
+     */
+    public SubgraphView restrict(Mask edge_mask, Mask vertex_mask) {
+        return new SubgraphView(graph, base,
+                edge_mask != null ? this.edge_mask.and(edge_mask) : this.edge_mask,
+                vertex_mask != null ? this.vertex_mask.and(vertex_mask) : this.vertex_mask);
+    }
+
+    @Override
+    public int vertices() {
+        return graph.N;
+    }
+
+    @Override
+    public Cursor cursor() {
+        Cursor it = base.cursor();
+        long[] edges = edge_mask.words, vertices = vertex_mask.words;
+        return new Cursor() {
+            boolean active;
+
+            @Override
+            public void reset(int u) {
+                it.reset(u);
+                active = (vertices[u >>> 6] & (1L << u)) != 0;
+            }
+
+            @Override
+            public boolean next() {
+                if (!active) return false;
+                while (it.next()) {
+                    int e = it.edge(), v = it.target();
+                    if ((edges[e >>> 6] & (1L << e)) != 0 && (vertices[v >>> 6] & (1L << v)) != 0)
+                        return true;
+                }
+                return false;
+            }
+
+            @Override
+            public int target() {
+                return it.target();
+            }
+
+            @Override
+            public int edge() {
+                return it.edge();
+            }
+        };
+    }
+
+    /*
+     * The main method closes random edges and edges above a weight threshold on a grid, runs Dijkstra and Prims
+     * on the view and compares them with the same runs on a copied subgraph.
+     */
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Graph graph = Benchmark.grid_graph(side);
+        int[] weights = Benchmark.random_weights(graph.E, 1000, 43);
+        var random = new SplittableRandom(44);
+        Mask open = Mask.of(graph.E, e -> random.nextInt(10) != 0);
+        Mask light = Mask.of(graph.E, e -> weights[e] <= 900);
+        Mask outside_corner = Mask.of(graph.N, v -> v % side >= side / 4 || v / side >= side / 4);
+
+        SubgraphView[] view = new SubgraphView[1];
+        double view_time = Benchmark.best_of(5, () -> view[0] = SubgraphView.of(graph, open.and(light), outside_corner));
+        double neighbors_time = Benchmark.best_of(5, () -> Adjacency.of(graph));
+
+        Graph[] copy = new Graph[1];
+        int[][] copy_weights = new int[1][];
+        double copy_time = Benchmark.best_of(5, () -> {
+            var builder = new Graph.Builder(graph.N);
+            for (int e = 0; e < graph.E; e++)
+                if (view[0].edge_mask.get(e) && outside_corner.get(graph.src[e]) && outside_corner.get(graph.dst[e]))
+                    builder.addEdge(graph.src[e], graph.dst[e], weights[e]);
+            copy_weights[0] = builder.weights();
+            copy[0] = builder.build();
+            copy[0].neighbors();
+        });
+        System.out.printf("view %d of %d edges, %d of %d vertices: mask and view %.1f ms (%.1f ms neighbor lists), copy %.1f ms%n",
+                view[0].edge_mask.count(), graph.E, outside_corner.count(), graph.N, view_time, neighbors_time, copy_time);
+
+        for (int start : new int[]{side * side / 2, side * side - 1}) {
+            Dijkstra on_copy = new Dijkstra(copy[0], start, copy_weights[0]);
+            on_copy.callback = (vertex, edge) -> {};
+            int[][] distances = new int[2][];
+            double view_search = Benchmark.best_of(3, () -> distances[0] = Dijkstra.run_search(
+                    view[0], start, weights, Dijkstra.Mode.auto, null, Limit.NONE).distances());
+            double copy_search = Benchmark.best_of(3, () -> distances[1] = on_copy.run());
+            System.out.printf("Dijkstra from %d: view %.1f ms, copy %.1f ms, same distances: %b%n",
+                    start, view_search, copy_search, Arrays.equals(distances[0], distances[1]));
+
+            Prims tree_copy = new Prims(copy[0], start, copy_weights[0]);
+            tree_copy.callback = (vertex, edge) -> {};
+            List<Integer> view_tree = Prims.run_tree(view[0], start, weights, null, Limit.NONE).tree(), copy_tree = tree_copy.run();
+            long view_total = 0, copy_total = 0;
+            for (int e : view_tree) view_total += weights[e];
+            for (int e : copy_tree) copy_total += copy_weights[0][e];
+            System.out.printf("Prims from %d: %d tree edges, same weight: %b%n", start, view_tree.size(), view_total == copy_total);
+        }
+    }
+}
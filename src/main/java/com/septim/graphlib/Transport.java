@@ -0,0 +1,26 @@
+package com.septim.graphlib;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Link between a {@link PartitionWorker} and the coordinator of {@link DistributedShortestPaths},
+ * carrying frames of ints in order.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Sends a frame.
+     *
+     * @param frame  the ints
+     * @param length number of ints to send from the start of frame
+     */
+    void send(int[] frame, int length) throws IOException;
+
+    /**
+     * Waits for the next frame.
+     *
+     * @return the frame, its length is the number of ints sent
+     */
+    int[] receive() throws IOException;
+}